@@ -9,6 +9,14 @@ import java.util.prefs.Preferences;
 public class MainApp {
     public static final Preferences PREFS = Preferences.userNodeForPackage(MainApp.class);
     public static final String LANG_PREF = "language";
+    public static final String STORAGE_KIND_PREF = "storage.kind";
+    public static final String READERS_SSD_PREF = "hash.readers.ssd";
+    public static final String READERS_HDD_PREF = "hash.readers.hdd";
+    public static final int DEFAULT_READERS_SSD = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_READERS_HDD = 1;
+    public static final String DUP_MEMORY_PREF = "dup.memory.mb";
+    public static final int DEFAULT_DUP_MEMORY_MB = (int) Math.max(64, Runtime.getRuntime().maxMemory() / 4 >> 20);
+    public static final String QUARANTINE_PREF = "dup.quarantine";
     public static Locale CURRENT_LOCALE;
 
     public static void main(String[] args) {
@@ -0,0 +1,131 @@
+package disk.utility;
+
+import java.text.MessageFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Лічильник прогресу для гарячих циклів: add() лише інкрементує LongAdder,
+ * а знімок (з швидкістю і ETA) публікується з фіксованим періодом на власному потоці-таймері,
+ * щоб не займати робочий пул AppContext.EXECUTOR.
+ * Отже, FX-потік отримує не більше одного оновлення за період незалежно від кількості файлів.
+ */
+public final class ProgressMeter implements AutoCloseable {
+
+    public static final long DEFAULT_PERIOD_MS = 100;
+
+    /* публікація миттєва — одного потоку досить на всі лічильники */
+    private static final ScheduledExecutorService TICKER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "DU-progress");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public record Snapshot(long done, long total, long files, double filesPerSec, double bytesPerSec,
+            long etaMillis) {
+
+        /** pattern: {0} файли, {1} файлів/с, {2} байтів/с, {3} ETA */
+        public String format(String pattern) {
+            return MessageFormat.format(pattern, files, Math.round(filesPerSec), human((long) bytesPerSec),
+                    eta(etaMillis));
+        }
+
+        /** Частка для Task.updateProgress(fraction(), 1): -1 (невизначено), поки обсяг невідомий — не 0/0 */
+        public double fraction() {
+            return total > 0 ? (double) done / total : -1;
+        }
+    }
+
+    private final LongAdder done = new LongAdder();
+    private final LongAdder files = new LongAdder();
+    private final Consumer<Snapshot> sink;
+    private final long start = System.nanoTime();
+    private final ScheduledFuture<?> timer;
+    private final AtomicLong total = new AtomicLong();
+    private boolean closed; // під this: після фінального знімка таймер уже нічого не публікує
+
+    public ProgressMeter(Consumer<Snapshot> sink) {
+        this(DEFAULT_PERIOD_MS, sink);
+    }
+
+    public ProgressMeter(long periodMs, Consumer<Snapshot> sink) {
+        this.sink = sink;
+        this.timer = TICKER.scheduleAtFixedRate(this::publish, periodMs, periodMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void add(long fileCount, long bytes) {
+        if (fileCount != 0)
+            files.add(fileCount);
+        if (bytes != 0)
+            done.add(bytes);
+    }
+
+    public void setTotal(long total) {
+        this.total.set(total);
+    }
+
+    /** Для задач, обсяг яких стає відомим поступово */
+    public void addTotal(long delta) {
+        total.addAndGet(delta);
+    }
+
+    public long done() {
+        return done.sum();
+    }
+
+    public Snapshot snapshot() {
+        long d = done.sum();
+        long f = files.sum();
+        long t = Math.max(total.get(), d);
+        double secs = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+        double bps = d / secs;
+        long eta = bps > 0 && t > d ? (long) ((t - d) / bps * 1000) : -1;
+        return new Snapshot(d, t, f, f / secs, bps, eta);
+    }
+
+    private synchronized void publish() {
+        if (!closed)
+            sink.accept(snapshot());
+    }
+
+    /**
+     * Зупиняє таймер і публікує фінальний знімок із done == total.
+     * Публікація, що вже почалася, завершується раніше — пізній тік не перезапише фінальний знімок.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+        closed = true;
+        timer.cancel(false);
+        Snapshot s = snapshot();
+        long t = Math.max(1, s.total);
+        sink.accept(new Snapshot(t, t, s.files, s.filesPerSec, s.bytesPerSec, 0));
+    }
+
+    private static String eta(long ms) {
+        if (ms < 0)
+            return "--:--";
+        long s = ms / 1000;
+        return s >= 3600
+                ? String.format("%d:%02d:%02d", s / 3600, s / 60 % 60, s % 60)
+                : String.format("%d:%02d", s / 60, s % 60);
+    }
+
+    private static String human(long b) {
+        String[] u = { "B", "KB", "MB", "GB", "TB" };
+        int i = 0;
+        double v = b;
+        while (v >= 1024 && i < u.length - 1) {
+            v /= 1024;
+            i++;
+        }
+        return String.format("%.1f %s", v, u[i]);
+    }
+}
@@ -0,0 +1,120 @@
+package disk.utility.analysis;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Індекс попереднього аналізу: для кожного каталогу — його mtime, суми за
+ * категоріями для файлів безпосередньо в ньому, імена підкаталогів і розмір найбільшого файлу.
+ * Якщо mtime каталогу не змінився, його файли не перелічуються повторно —
+ * перевіряються лише підкаталоги.
+ * Зміна вмісту файлу «на місці» mtime каталогу не змінює і такою перевіркою не виявляється.
+ */
+final class AnalysisIndex {
+
+    private static final int MAGIC = 0x44554149; // "DUAI"
+    private static final int VERSION = 2;
+
+    record Dir(long modified, long[] sizes, String[] subdirs, long largest) {
+    }
+
+    private final Path file;
+    private final String signature;
+    private final int categories;
+    private Map<String, Dir> previous = new HashMap<>();
+    private final Map<String, Dir> current = new ConcurrentHashMap<>();
+
+    private AnalysisIndex(Path file, String signature, int categories) {
+        this.file = file;
+        this.signature = signature;
+        this.categories = categories;
+    }
+
+    static Path defaultFile() {
+        return Path.of(System.getProperty("user.home"), ".disk-utility", "analysis-index.bin");
+    }
+
+    /** signature — параметри фільтрів і профіль категорій; індекс з іншими не використовується */
+    static AnalysisIndex load(Path file, String signature, int categories) {
+        AnalysisIndex idx = new AnalysisIndex(file, signature, categories);
+        if (!Files.isRegularFile(file))
+            return idx;
+        int cats = categories;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != cats
+                    || !in.readUTF().equals(signature))
+                return idx;
+            int n = in.readInt();
+            Map<String, Dir> map = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                String path = in.readUTF();
+                long modified = in.readLong();
+                long[] sizes = new long[cats];
+                for (int c = 0; c < cats; c++)
+                    sizes[c] = in.readLong();
+                String[] subdirs = new String[in.readInt()];
+                for (int s = 0; s < subdirs.length; s++)
+                    subdirs[s] = in.readUTF();
+                map.put(path, new Dir(modified, sizes, subdirs, in.readLong()));
+            }
+            idx.previous = map;
+        } catch (IOException e) {
+            idx.previous = new HashMap<>(); // пошкоджений індекс — повне сканування
+        }
+        return idx;
+    }
+
+    Dir previous(Path dir) {
+        return previous.get(dir.toString());
+    }
+
+    void put(Path dir, Dir d) {
+        current.put(dir.toString(), d);
+    }
+
+    /** Записи під просканованими коренями замінюються новими, решта зберігається */
+    void save(List<Path> roots) {
+        Map<String, Dir> out = new HashMap<>(current);
+        previous.forEach((path, d) -> {
+            Path p = Path.of(path);
+            for (Path r : roots)
+                if (p.startsWith(r))
+                    return;
+            out.putIfAbsent(path, d);
+        });
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream o = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                o.writeInt(MAGIC);
+                o.writeInt(VERSION);
+                o.writeInt(categories);
+                o.writeUTF(signature);
+                o.writeInt(out.size());
+                for (Map.Entry<String, Dir> e : out.entrySet()) {
+                    Dir d = e.getValue();
+                    o.writeUTF(e.getKey());
+                    o.writeLong(d.modified);
+                    for (long s : d.sizes)
+                        o.writeLong(s);
+                    o.writeInt(d.subdirs.length);
+                    for (String s : d.subdirs)
+                        o.writeUTF(s);
+                    o.writeLong(d.largest);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package disk.utility.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Живе оновлення результатів аналізу через WatchService.
+ * Каталоги реєструються в ширину від коренів, не більше maxKeys.
+ * Для кожного з них зберігаються суми його власних файлів. Події лише
+ * позначають каталог «брудним»; раз на інтервал брудні каталоги
+ * перелічуються заново, а різниця додається до загальних сум.
+ * Отже, сплеск подій дає один виклик onUpdate за інтервал.
+ * OVERFLOW (події втрачено) позначає брудним усе відстежуване піддерево каталогу.
+ */
+public final class AnalysisWatcher implements Closeable {
+
+    private final WatchService ws;
+    private final CategoryProfile profile;
+    private final Predicate<BasicFileAttributes> filter;
+    private final int maxKeys;
+    private final long intervalMs;
+    private final Consumer<Map<Category, Long>> onUpdate;
+
+    private final long[] totals;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>(); // розмір читає FX-потік
+    private final Map<Path, long[]> own = new HashMap<>();
+    private final Set<Path> dirty = new HashSet<>();
+    private final Set<Path> overflowed = new HashSet<>();
+    /* початкова реєстрація охопила все дерево: незареєстрований каталог точно новий, а не відкинутий лімітом */
+    private boolean complete;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    AnalysisWatcher(List<Path> roots, CategoryProfile profile, Map<Category, Long> initial,
+            Predicate<BasicFileAttributes> filter, int maxKeys, long intervalMs,
+            Consumer<Map<Category, Long>> onUpdate) throws IOException {
+        this.ws = FileSystems.getDefault().newWatchService();
+        this.profile = profile;
+        this.filter = filter;
+        this.maxKeys = maxKeys;
+        this.intervalMs = intervalMs;
+        this.onUpdate = onUpdate;
+        this.totals = profile.toArray(initial);
+
+        thread = new Thread(() -> run(roots), "DU-watch-" + UUID.randomUUID());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int watchedDirectories() {
+        return keys.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        try {
+            ws.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /* ---------------- event loop ---------------- */
+
+    private void run(List<Path> roots) {
+        registerTree(roots, false);
+        try {
+            long deadline = System.currentTimeMillis() + intervalMs;
+            while (!closed) {
+                WatchKey key = ws.poll(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                if (key != null)
+                    handle(key);
+                if (System.currentTimeMillis() >= deadline) {
+                    flush();
+                    deadline = System.currentTimeMillis() + intervalMs;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    private void handle(WatchKey key) {
+        Path dir = keys.get(key);
+        if (dir == null)
+            return;
+        List<Path> created = new ArrayList<>();
+        for (WatchEvent<?> ev : key.pollEvents()) {
+            if (ev.kind() == OVERFLOW) {
+                overflowed.add(dir);
+                continue;
+            }
+            dirty.add(dir);
+            if (ev.kind() == ENTRY_CREATE) {
+                Path child = dir.resolve((Path) ev.context());
+                if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS))
+                    created.add(child);
+            }
+        }
+        if (!created.isEmpty())
+            registerTree(created, true);
+        if (!key.reset())
+            unregister(key, dir);
+    }
+
+    /* каталог зник — віднімаємо його власні суми */
+    private void unregister(WatchKey key, Path dir) {
+        keys.remove(key);
+        dirty.remove(dir);
+        long[] old = own.remove(dir);
+        if (old != null) {
+            for (int c = 0; c < old.length; c++)
+                totals[c] -= old[c];
+            publish();
+        }
+    }
+
+    private void flush() {
+        if (!overflowed.isEmpty())
+            rescan();
+        if (dirty.isEmpty())
+            return;
+        boolean changed = false;
+        for (Path dir : dirty) {
+            long[] old = own.get(dir);
+            if (old == null)
+                continue;
+            long[] now = ownTotals(dir);
+            for (int c = 0; c < now.length; c++) {
+                if (now[c] != old[c]) {
+                    totals[c] += now[c] - old[c];
+                    changed = true;
+                }
+            }
+            own.put(dir, now);
+        }
+        dirty.clear();
+        if (changed)
+            publish();
+    }
+
+    private void publish() {
+        onUpdate.accept(profile.toMap(totals));
+    }
+
+    /*
+     * Після OVERFLOW невідомо, що змінилося: усі відстежувані каталоги піддерева стають брудними,
+     * а пропущені через втрачені ENTRY_CREATE нові каталоги реєструються. Linux сигналізує OVERFLOW
+     * кожному ключу — піддерева, вкладені в інше переповнене, окремо не обходяться.
+     */
+    private void rescan() {
+        Deque<Path> queue = new ArrayDeque<>();
+        for (Path dir : overflowed) {
+            Path p = dir.getParent();
+            while (p != null && !overflowed.contains(p))
+                p = p.getParent();
+            if (p == null)
+                queue.add(dir);
+        }
+        overflowed.clear();
+        List<Path> unseen = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            Path dir = queue.poll();
+            if (!own.containsKey(dir)) {
+                if (complete)
+                    unseen.add(dir);
+                continue;
+            }
+            dirty.add(dir);
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, Files::isDirectory)) {
+                for (Path sub : ds)
+                    if (!Files.isSymbolicLink(sub))
+                        queue.add(sub);
+            } catch (IOException | DirectoryIteratorException ignored) {
+            }
+        }
+        if (!unseen.isEmpty())
+            registerTree(unseen, true);
+    }
+
+    /* ---------------- registration ---------------- */
+
+    /**
+     * Обхід у ширину з обмеженням кількості ключів.
+     * fresh — каталоги нові, їх файли ще не враховані в сумах: стартуємо з нуля і позначаємо брудними.
+     */
+    private void registerTree(List<Path> starts, boolean fresh) {
+        Deque<Path> queue = new ArrayDeque<>(starts);
+        while (!queue.isEmpty() && keys.size() < maxKeys && !closed) {
+            Path dir = queue.poll();
+            try {
+                WatchKey k = dir.register(ws, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                keys.put(k, dir);
+            } catch (IOException | ClosedWatchServiceException e) {
+                continue;
+            }
+            if (fresh) {
+                own.put(dir, new long[profile.size()]);
+                dirty.add(dir);
+            } else {
+                own.put(dir, ownTotals(dir));
+            }
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, Files::isDirectory)) {
+                for (Path sub : ds)
+                    if (!Files.isSymbolicLink(sub))
+                        queue.add(sub);
+            } catch (IOException | DirectoryIteratorException ignored) {
+            }
+        }
+        if (!fresh)
+            complete = queue.isEmpty();
+    }
+
+    private long[] ownTotals(Path dir) {
+        long[] sizes = new long[profile.size()];
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path p : ds) {
+                try {
+                    BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (filter.test(a))
+                        sizes[profile.indexOf(p, a)] += a.size();
+                } catch (IOException ignored) {
+                }
+            }
+        } catch (IOException | DirectoryIteratorException ignored) {
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,10 @@
+package disk.utility.analysis;
+
+/** Категорія профілю; index — позиція в масивах сум, label — назва для UI */
+public record Category(int index, String label) {
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,542 @@
+package disk.utility.analysis;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Набір категорій із скомпільованим класифікатором.
+ * Вбудований профіль — категорії FileCategory; користувацький читається з
+ * ~/.disk-utility/categories.json і доповнює або замінює його:
+ *
+ * <pre>
+ * {
+ *   "builtin": true,
+ *   "categories": [
+ *     { "name": "Build artifacts", "directories": ["target", "node_modules"], "extensions": ["class", "o"] },
+ *     { "name": "Logs", "extensions": ["log"], "regex": [".*\\.log\\.\\d+"] },
+ *     { "name": "VM images", "extensions": ["vmdk", "vdi", "qcow2"], "magic": ["514649FB"] },
+ *     { "name": "Images", "extensions": ["webp", "heic"] }
+ *   ]
+ * }
+ * </pre>
+ *
+ * Категорія з назвою вбудованої доповнює її правила. Порядок перевірки:
+ * точне ім'я файлу, ім'я каталогу-предка, glob/regex, розширення, сигнатура на початку файлу.
+ * Імена, каталоги, розширення і сигнатури — хеш-таблиці, тож їх вартість не росте з кількістю правил.
+ * Glob/regex, що закінчуються літеральним розширенням ("**&#47;*.log", ".*\\.bak"), розкладені
+ * за ним по кошиках. Решта з обов'язковим літералом ("**&#47;cache/**") — в LiteralIndex: один прохід
+ * по шляху дає правила, що взагалі можуть спрацювати. Regex без жодного з них зібрані в один
+ * вираз-альтернативу. Тож файл перевіряє лише своїх кандидатів; виграє перше правило за порядком.
+ * Каталог-предок обхід визначає раз на каталог (directoryIndex) і передає файлам.
+ */
+public final class CategoryProfile {
+
+    private static final int MAX_MAGIC = 16;
+    private static final String OTHER = FileCategory.OTHER.label;
+    static final int NO_DIRECTORY = -1;
+    /* екранування з аргументом (\x41, \p{L}, \k<n>, \Q..) і режим (?x) — літерал не виділяється */
+    private static final Pattern NO_LITERAL = Pattern.compile("\\\\[xu0-9pPkcNQE]|\\(\\?[a-wyzA-Z-]*x");
+    private static final Pattern REGEX_EXTENSION = Pattern.compile("(?<!\\\\)\\\\\\.([A-Za-z0-9]+)$");
+    private static final Pattern UNCOMBINABLE = Pattern.compile("\\\\([1-9]|k<)|\\(\\?<[A-Za-z]");
+
+    private final List<Category> categories;
+    private final Category other;
+    private final ExtensionTable extensions;
+    private final Map<String, Integer> names;
+    private final Map<String, Integer> directories;
+    private final PathRule[] rules; // glob/regex у порядку конфігурації
+    private final ExtensionTable ruleBuckets; // обов'язкове розширення правила → кошик
+    private final int[][] buckets; // номери правил кошика за зростанням
+    private final LiteralIndex literals; // правила з обов'язковим літералом; null — таких немає
+    private final BitSet anyRules; // без розширення і літералу, поза anyRegex
+    private final ThreadLocal<BitSet> candidates = ThreadLocal.withInitial(BitSet::new);
+    private final Pattern anyRegex; // (?<r3>...)|(?<r7>...) — решта regex
+    private final int[] anyRegexRules;
+    private final String[] anyRegexGroups;
+    private final Magic[][] magic;
+    private final int magicLen;
+    private final String fingerprint;
+
+    private record PathRule(int category, String source, PathMatcher glob, Pattern regex) {
+        boolean matches(Path p) {
+            return glob != null ? glob.matches(p) : regex.matcher(p.toString()).matches();
+        }
+    }
+
+    private record Magic(int category, byte[] bytes) {
+    }
+
+    private CategoryProfile(Builder b, String fingerprint) {
+        this.categories = List.copyOf(b.categories);
+        this.other = categories.get(categories.size() - 1);
+        this.extensions = new ExtensionTable(b.extensions);
+        this.names = Map.copyOf(b.names);
+        this.directories = Map.copyOf(b.directories);
+        this.fingerprint = fingerprint;
+
+        rules = b.patterns.toArray(PathRule[]::new);
+        Map<String, Integer> bucketOf = new LinkedHashMap<>();
+        List<List<Integer>> keyed = new ArrayList<>();
+        List<String> literalOf = new ArrayList<>();
+        List<Integer> literalRules = new ArrayList<>();
+        BitSet any = new BitSet();
+        List<Integer> combined = new ArrayList<>();
+        StringBuilder alternatives = new StringBuilder();
+        for (int i = 0; i < rules.length; i++) {
+            PathRule r = rules[i];
+            String ext = r.glob != null ? globExtension(r.source) : regexExtension(r.source);
+            if (ext != null && ExtensionTable.packable(ext)) {
+                int bucket = bucketOf.computeIfAbsent(ext.toLowerCase(Locale.ROOT), __ -> {
+                    keyed.add(new ArrayList<>());
+                    return keyed.size() - 1;
+                });
+                keyed.get(bucket).add(i);
+                continue;
+            }
+            String literal = r.glob != null ? globLiteral(r.source) : regexLiteral(r.source);
+            if (literal != null) {
+                literalOf.add(literal);
+                literalRules.add(i);
+            } else if (r.regex != null && combinable(r.source)) {
+                if (!combined.isEmpty())
+                    alternatives.append('|');
+                alternatives.append("(?<r").append(i).append('>').append(r.source).append(')');
+                combined.add(i);
+            } else {
+                any.set(i);
+            }
+        }
+        ruleBuckets = new ExtensionTable(bucketOf);
+        buckets = new int[keyed.size()][];
+        for (int i = 0; i < buckets.length; i++)
+            buckets[i] = keyed.get(i).stream().mapToInt(Integer::intValue).toArray();
+        literals = literalRules.isEmpty() ? null : new LiteralIndex(literalOf.toArray(String[]::new),
+                literalRules.stream().mapToInt(Integer::intValue).toArray());
+        anyRules = any;
+        anyRegex = combined.isEmpty() ? null : Pattern.compile(alternatives.toString());
+        anyRegexRules = combined.stream().mapToInt(Integer::intValue).toArray();
+        anyRegexGroups = combined.stream().map(i -> "r" + i).toArray(String[]::new);
+
+        int len = 0;
+        List<List<Magic>> byFirst = new ArrayList<>(256);
+        for (int i = 0; i < 256; i++)
+            byFirst.add(new ArrayList<>());
+        for (Magic m : b.magic) {
+            byFirst.get(m.bytes[0] & 0xFF).add(m);
+            len = Math.max(len, m.bytes.length);
+        }
+        magic = new Magic[256][];
+        for (int i = 0; i < 256; i++)
+            magic[i] = byFirst.get(i).isEmpty() ? null : byFirst.get(i).toArray(Magic[]::new);
+        magicLen = len;
+    }
+
+    /* ---------------- profiles ---------------- */
+
+    private static final class Holder {
+        static final CategoryProfile ACTIVE = loadOrBuiltIn(defaultFile());
+    }
+
+    /* чому файл профілю не прочитано; null — прочитано або файлу немає */
+    private static volatile String loadError;
+
+    /** Профіль, прочитаний один раз за запуск; без файлу конфігурації — вбудований */
+    public static CategoryProfile active() {
+        return Holder.ACTIVE;
+    }
+
+    /** Помилка читання файлу категорій, через яку діє вбудований профіль; null — її не було */
+    public static String loadError() {
+        active();
+        return loadError;
+    }
+
+    public static Path defaultFile() {
+        return Path.of(System.getProperty("user.home"), ".disk-utility", "categories.json");
+    }
+
+    public static CategoryProfile builtIn() {
+        Builder b = new Builder();
+        b.addBuiltIns();
+        return b.build("builtin");
+    }
+
+    /** Помилки конфігурації не зупиняють програму — використовується вбудований профіль, а помилка — в loadError() */
+    static CategoryProfile loadOrBuiltIn(Path file) {
+        if (!Files.isRegularFile(file))
+            return builtIn();
+        try {
+            return load(file);
+        } catch (IOException | RuntimeException e) {
+            loadError = file + ": " + e.getMessage();
+            return builtIn();
+        }
+    }
+
+    public static CategoryProfile load(Path file) throws IOException {
+        String text = Files.readString(file, StandardCharsets.UTF_8);
+        JsonObject root = JsonParser.parseString(text).getAsJsonObject();
+
+        Builder b = new Builder();
+        boolean withBuiltIns = !root.has("builtin") || root.get("builtin").getAsBoolean();
+        List<JsonObject> custom = new ArrayList<>();
+        if (root.has("categories"))
+            for (JsonElement e : root.getAsJsonArray("categories"))
+                custom.add(e.getAsJsonObject());
+
+        /* користувацькі правила перевіряються першими, тож реєструються перед вбудованими розширеннями */
+        for (JsonObject c : custom)
+            if (!c.get("name").getAsString().equals(OTHER))
+                b.category(c.get("name").getAsString());
+        if (withBuiltIns)
+            for (FileCategory c : FileCategory.values())
+                if (c != FileCategory.OTHER)
+                    b.category(c.label);
+        b.category(OTHER);
+
+        for (JsonObject c : custom) {
+            int idx = b.category(c.get("name").getAsString());
+            for (String s : strings(c, "extensions"))
+                b.extensions.putIfAbsent(s.toLowerCase(Locale.ROOT), idx);
+            for (String s : strings(c, "names"))
+                b.names.putIfAbsent(s.toLowerCase(Locale.ROOT), idx);
+            for (String s : strings(c, "directories"))
+                b.directories.putIfAbsent(s.toLowerCase(Locale.ROOT), idx);
+            for (String s : strings(c, "globs"))
+                b.patterns.add(new PathRule(idx, s, FileSystems.getDefault().getPathMatcher("glob:" + s), null));
+            for (String s : strings(c, "regex"))
+                b.patterns.add(new PathRule(idx, s, null, Pattern.compile(s)));
+            for (String s : strings(c, "magic"))
+                b.magic.add(new Magic(idx, hex(s)));
+        }
+        if (withBuiltIns)
+            b.addBuiltIns();
+
+        for (String ext : b.extensions.keySet())
+            if (!ExtensionTable.packable(ext))
+                throw new IllegalArgumentException("Unsupported extension: " + ext);
+        return b.build(Integer.toHexString(text.hashCode()));
+    }
+
+    private static List<String> strings(JsonObject o, String field) {
+        if (!o.has(field))
+            return List.of();
+        JsonArray a = o.getAsJsonArray(field);
+        List<String> out = new ArrayList<>(a.size());
+        for (JsonElement e : a)
+            out.add(e.getAsString());
+        return out;
+    }
+
+    private static byte[] hex(String s) {
+        String h = s.replace(" ", "");
+        if (h.isEmpty() || h.length() % 2 != 0 || h.length() / 2 > MAX_MAGIC)
+            throw new IllegalArgumentException("Bad magic: " + s);
+        byte[] out = new byte[h.length() / 2];
+        for (int i = 0; i < out.length; i++)
+            out[i] = (byte) Integer.parseInt(h.substring(2 * i, 2 * i + 2), 16);
+        return out;
+    }
+
+    private static final class Builder {
+        final List<Category> categories = new ArrayList<>();
+        final Map<String, Integer> byLabel = new HashMap<>();
+        final Map<String, Integer> extensions = new LinkedHashMap<>();
+        final Map<String, Integer> names = new HashMap<>();
+        final Map<String, Integer> directories = new HashMap<>();
+        final List<PathRule> patterns = new ArrayList<>();
+        final List<Magic> magic = new ArrayList<>();
+
+        int category(String label) {
+            return byLabel.computeIfAbsent(label, l -> {
+                categories.add(new Category(categories.size(), l));
+                return categories.size() - 1;
+            });
+        }
+
+        void addBuiltIns() {
+            for (FileCategory c : FileCategory.values()) {
+                int idx = category(c.label);
+                for (String ext : c.extensions())
+                    extensions.putIfAbsent(ext, idx);
+            }
+        }
+
+        CategoryProfile build(String fingerprint) {
+            /* OTHER завжди останній */
+            int other = category(OTHER);
+            if (other != categories.size() - 1)
+                throw new IllegalStateException("Other must be the last category");
+            return new CategoryProfile(this, fingerprint);
+        }
+    }
+
+    /* ---------------- matching ---------------- */
+
+    public List<Category> categories() {
+        return categories;
+    }
+
+    public int size() {
+        return categories.size();
+    }
+
+    public Category other() {
+        return other;
+    }
+
+    /** Змінюється разом із файлом конфігурації — для інвалідації збережених сум */
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    public Category classify(Path p, BasicFileAttributes attrs) {
+        return categories.get(indexOf(p, attrs));
+    }
+
+    int indexOf(Path p, BasicFileAttributes attrs) {
+        Path parent = p.getParent();
+        return indexOf(p, attrs, parent == null ? NO_DIRECTORY : directoryIndex(parent));
+    }
+
+    /**
+     * Категорія правила directories для файлів у dir (виграє найвищий предок); NO_DIRECTORY — жодне.
+     * Повний прохід по компонентах — лише для кореня обходу, далі — directoryIndex(parent, dir).
+     */
+    int directoryIndex(Path dir) {
+        if (!directories.isEmpty())
+            for (Path part : dir) {
+                Integer c = directories.get(part.toString().toLowerCase(Locale.ROOT));
+                if (c != null)
+                    return c;
+            }
+        return NO_DIRECTORY;
+    }
+
+    /** Те саме для підкаталогу, коли результат батьківського каталогу вже відомий */
+    int directoryIndex(int parent, Path dir) {
+        if (parent != NO_DIRECTORY || directories.isEmpty())
+            return parent;
+        Path name = dir.getFileName();
+        Integer c = name == null ? null : directories.get(name.toString().toLowerCase(Locale.ROOT));
+        return c == null ? NO_DIRECTORY : c;
+    }
+
+    /** dirIndex — directoryIndex каталогу файлу, обчислений обходом один раз на каталог */
+    int indexOf(Path p, BasicFileAttributes attrs, int dirIndex) {
+        if (!names.isEmpty()) {
+            Path name = p.getFileName();
+            Integer c = name == null ? null : names.get(name.toString().toLowerCase(Locale.ROOT));
+            if (c != null)
+                return c;
+        }
+        if (dirIndex != NO_DIRECTORY)
+            return dirIndex;
+        String s = p.toString();
+        if (rules.length > 0) {
+            int r = matchRule(p, s);
+            if (r >= 0)
+                return rules[r].category;
+        }
+
+        int c = extensions.get(s);
+        if (c != ExtensionTable.MISSING)
+            return c;
+
+        if (magicLen > 0 && attrs != null && attrs.isRegularFile() && attrs.size() > 0)
+            return sniff(p);
+        return other.index();
+    }
+
+    /*
+     * Перше за порядком правило, що спрацювало, або -1. Кандидати — кошик розширення файлу,
+     * правила, чий літерал є в шляху, і правила без жодного ключа; перевіряються за номером.
+     * anyRegex виконується раз, коли черга доходить до його першої альтернативи,
+     * і дає номер своєї першої спрацьованої.
+     */
+    private int matchRule(Path p, String s) {
+        BitSet cand = candidates.get();
+        cand.clear();
+        int b = ruleBuckets.get(s);
+        if (b != ExtensionTable.MISSING)
+            for (int r : buckets[b])
+                cand.set(r);
+        if (literals != null)
+            literals.collect(s, cand);
+        cand.or(anyRules);
+        boolean pending = anyRegex != null;
+        int regexHit = Integer.MAX_VALUE;
+        for (int r = cand.nextSetBit(0); r >= 0; r = cand.nextSetBit(r + 1)) {
+            if (pending && anyRegexRules[0] < r) {
+                pending = false;
+                regexHit = matchAnyRegex(s);
+            }
+            if (regexHit < r)
+                return regexHit;
+            if (rules[r].matches(p))
+                return r;
+        }
+        if (pending)
+            regexHit = matchAnyRegex(s);
+        return regexHit == Integer.MAX_VALUE ? -1 : regexHit;
+    }
+
+    private int matchAnyRegex(String s) {
+        Matcher m = anyRegex.matcher(s);
+        if (m.matches())
+            for (int k = 0; k < anyRegexRules.length; k++)
+                if (m.start(anyRegexGroups[k]) >= 0)
+                    return anyRegexRules[k];
+        return Integer.MAX_VALUE;
+    }
+
+    /* розширення, яке має бути в кінці шляху, щоб glob спрацював: з літерального хвоста після останнього спецсимволу */
+    private static String globExtension(String glob) {
+        int i = glob.length();
+        while (i > 0 && "*?[]{}\\".indexOf(glob.charAt(i - 1)) < 0)
+            i--;
+        return literalExtension(glob.substring(i));
+    }
+
+    /* те саме для regex, що закінчується на \.ext без альтернатив */
+    private static String regexExtension(String regex) {
+        if (regex.indexOf('|') >= 0)
+            return null;
+        Matcher m = REGEX_EXTENSION.matcher(regex);
+        return m.find() ? m.group(1) : null;
+    }
+
+    private static String literalExtension(String tail) {
+        int dot = tail.lastIndexOf('.');
+        if (dot < 0 || dot == tail.length() - 1 || tail.indexOf('/', dot) >= 0)
+            return null;
+        return tail.substring(dot + 1);
+    }
+
+    /*
+     * найдовший літерал поза [...] і {...}, без якого glob не спрацює; у glob немає необов'язкових символів,
+     * тож кожен такий літерал обов'язковий
+     */
+    private static String globLiteral(String glob) {
+        String best = null;
+        int depth = 0, from = 0;
+        for (int i = 0; i <= glob.length(); i++) {
+            char c = i < glob.length() ? glob.charAt(i) : '*';
+            boolean special = c == '*' || c == '?' || c == '[' || c == ']' || c == '{' || c == '}' || c == '\\';
+            if (special || depth > 0) {
+                if (depth == 0)
+                    best = longer(best, glob, from, i);
+                if (c == '[' || c == '{')
+                    depth++;
+                else if ((c == ']' || c == '}') && depth > 0)
+                    depth--;
+                else if (c == '\\')
+                    i++; // екранований символ — не літерал для фільтра
+                from = i + 1;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Те саме для regex — консервативно: без альтернатив і режиму (?x), лише на верхньому рівні
+     * (групи і класи пропускаються), символ перед ?, * чи {..} вважається необов'язковим.
+     */
+    private static String regexLiteral(String regex) {
+        if (regex.indexOf('|') >= 0 || NO_LITERAL.matcher(regex).find())
+            return null;
+        String best = null;
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (depth > 0 || c == '(' || c == '[') {
+                best = longer(best, run);
+                run.setLength(0);
+                if (c == '\\')
+                    i++;
+                else if (c == '(' || c == '[')
+                    depth++;
+                else if (c == ')' || c == ']')
+                    depth--;
+                continue;
+            }
+            char lit;
+            if (c == '\\' && i + 1 < regex.length() && Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                best = longer(best, run); // \d, \s, \b ... — не літерал
+                run.setLength(0);
+                i++;
+                continue;
+            } else if (c == '\\' && i + 1 < regex.length())
+                lit = regex.charAt(++i);
+            else if (Character.isLetterOrDigit(c) || c == '/' || c == '-' || c == '_' || c == ' ')
+                lit = c;
+            else {
+                if (c == '?' || c == '*' || c == '{')
+                    run.setLength(Math.max(0, run.length() - 1));
+                best = longer(best, run);
+                run.setLength(0);
+                continue;
+            }
+            run.append(lit);
+        }
+        return longer(best, run);
+    }
+
+    /* літерал з одного символу (зокрема '/') є майже в кожному шляху — фільтр з нього нічого не дає */
+    private static String longer(String best, CharSequence s, int from, int to) {
+        return to - from >= 2 && (best == null || to - from > best.length()) ? s.subSequence(from, to).toString() : best;
+    }
+
+    private static String longer(String best, CharSequence run) {
+        return longer(best, run, 0, run.length());
+    }
+
+    /* зворотні посилання і власні іменовані групи зламались би в спільному виразі */
+    private static boolean combinable(String regex) {
+        return !UNCOMBINABLE.matcher(regex).find();
+    }
+
+    private int sniff(Path p) {
+        byte[] head;
+        try (InputStream in = Files.newInputStream(p)) {
+            head = in.readNBytes(magicLen);
+        } catch (IOException e) {
+            return other.index();
+        }
+        if (head.length == 0)
+            return other.index();
+        Magic[] candidates = magic[head[0] & 0xFF];
+        if (candidates != null)
+            for (Magic m : candidates)
+                if (head.length >= m.bytes.length
+                        && Arrays.equals(head, 0, m.bytes.length, m.bytes, 0, m.bytes.length))
+                    return m.category;
+        return other.index();
+    }
+
+    /** Масив сум за індексами категорій → мапа в порядку профілю */
+    public Map<Category, Long> toMap(long[] sizes) {
+        Map<Category, Long> m = new LinkedHashMap<>();
+        for (Category c : categories)
+            m.put(c, sizes[c.index()]);
+        return m;
+    }
+
+    long[] toArray(Map<Category, Long> sizes) {
+        long[] a = new long[categories.size()];
+        sizes.forEach((c, sz) -> a[c.index()] = sz);
+        return a;
+    }
+}
@@ -1,79 +1,103 @@
 package disk.utility.analysis;
 
+import disk.utility.ProgressMeter;
+
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public final class DiskAnalyzer {
 
-    public static Map<FileCategory, Long> analyze(List<Path> roots,
+    public enum ScanMode {
+        PARALLEL,
+        SEQUENTIAL
+    }
+
+    public static Map<Category, Long> analyze(List<Path> roots,
+            CategoryProfile profile,
             long minSize,
             long maxSize,
             long minModified,
             long maxModified,
-            BiConsumer<Long, Long> progress) {
+            ScanMode mode,
+            boolean incremental,
+            SpaceReport report,
+            ProgressMeter progress) {
 
-        long totalBytes = roots.stream()
-                .mapToLong(p -> silent(() -> Files.getFileStore(p).getTotalSpace()))
+        /* знайти можна лише зайняте місце — воно і є знаменником прогресу */
+        long usedBytes = roots.stream()
+                .mapToLong(p -> silent(() -> {
+                    FileStore fs = Files.getFileStore(p);
+                    return fs.getTotalSpace() - fs.getUnallocatedSpace();
+                }))
                 .sum();
-        final long grandTotal = totalBytes == 0 ? 1 : totalBytes;
-
-        EnumMap<FileCategory, Long> sizes = new EnumMap<>(FileCategory.class);
-        for (FileCategory c : FileCategory.values())
-            sizes.put(c, 0L);
+        progress.setTotal(usedBytes == 0 ? 1 : usedBytes);
 
-        long[] done = { 0 };
-        for (Path root : roots) {
-            walkSafe(root, (file, attrs) -> {
-                if (!attrs.isRegularFile())
-                    return;
+        Predicate<BasicFileAttributes> filter = filter(minSize, maxSize, minModified, maxModified);
+        ParallelWalker.Visitor visitor = (file, attrs, dirIndex, acc) -> {
+            if (!filter.test(attrs))
+                return;
 
-                long sz = attrs.size();
-                long lastModified = attrs.lastModifiedTime().toMillis();
+            long sz = attrs.size();
+            acc[profile.indexOf(file, attrs, dirIndex)] += sz;
+            if (report != null)
+                report.offer(file, sz);
 
-                if (sz < minSize || sz > maxSize
-                        || lastModified < minModified
-                        || lastModified > maxModified)
-                    return;
+            progress.add(1, sz);
+        };
 
-                FileCategory cat = FileCategory.of(file);
-                sizes.merge(cat, sz, Long::sum);
-
-                done[0] += sz;
-                progress.accept(done[0], grandTotal);
-            });
-        }
-        return sizes;
+        /* індекс будується тим самим обходом по каталогах; SEQUENTIAL — один воркер */
+        AnalysisIndex index = incremental
+                ? AnalysisIndex.load(AnalysisIndex.defaultFile(),
+                        minSize + ":" + maxSize + ":" + minModified + ":" + maxModified + ":" + profile.fingerprint(),
+                        profile.size())
+                : null;
+        int parallelism = mode == ScanMode.PARALLEL ? Runtime.getRuntime().availableProcessors() : 1;
+        /* скасований обхід кидає CancellationException — неповний індекс не зберігається і не показується */
+        long[] sizes = ParallelWalker.walk(roots, profile, visitor, index, report, parallelism,
+                bytes -> progress.add(0, bytes));
+        if (index != null)
+            index.save(roots);
+        if (report != null)
+            report.complete(filter);
+        return profile.toMap(sizes);
     }
 
-    private interface FileVisitor {
-        void visit(Path file, BasicFileAttributes attrs) throws IOException;
+    /**
+     * Стежить за змінами під roots і підтримує суми актуальними без повторного сканування.
+     * onUpdate викликається з потоку спостерігача не частіше ніж раз на intervalMs.
+     */
+    public static AnalysisWatcher watch(List<Path> roots,
+            CategoryProfile profile,
+            long minSize,
+            long maxSize,
+            long minModified,
+            long maxModified,
+            Map<Category, Long> totals,
+            int maxKeys,
+            long intervalMs,
+            Consumer<Map<Category, Long>> onUpdate) throws IOException {
+        return new AnalysisWatcher(roots, profile, totals, filter(minSize, maxSize, minModified, maxModified),
+                maxKeys, intervalMs, onUpdate);
     }
 
-    private static void walkSafe(Path root, FileVisitor v) {
-        try {
-            Files.walkFileTree(root, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult visitFile(Path file,
-                        BasicFileAttributes attrs) {
-                    try {
-                        v.visit(file, attrs);
-                    } catch (IOException ignored) {
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-
-                @Override
-                public FileVisitResult visitFileFailed(Path file, IOException exc) {
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-        } catch (IOException ignored) {
-        }
+    private static Predicate<BasicFileAttributes> filter(long minSize, long maxSize,
+            long minModified, long maxModified) {
+        return attrs -> {
+            if (!attrs.isRegularFile())
+                return false;
+
+            long sz = attrs.size();
+            long lastModified = attrs.lastModifiedTime().toMillis();
+
+            return !(sz < minSize || sz > maxSize
+                    || lastModified < minModified
+                    || lastModified > maxModified);
+        };
     }
 
     private static long silent(IOSupplier s) {
@@ -0,0 +1,89 @@
+package disk.utility.analysis;
+
+import java.util.Map;
+
+/**
+ * Таблиця «розширення → номер категорії» з відкритою адресацією.
+ * Розширення (ASCII, до 8 символів) пакується в long по байту на символ,
+ * у нижньому регістрі. Пошук не створює жодних об'єктів і не залежить від кількості розширень.
+ */
+final class ExtensionTable {
+
+    static final int MAX_EXT = 8;
+    static final int MISSING = -1;
+
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+
+    /** Для розширень, що не пакуються (задовгі, не ASCII), запис пропускається; перше входження виграє */
+    ExtensionTable(Map<String, Integer> exts) {
+        int cap = Integer.highestOneBit(Math.max(4, exts.size()) * 4 - 1) << 1; // заповнення ≤ 25 %
+        keys = new long[cap];
+        values = new int[cap];
+        mask = cap - 1;
+        exts.forEach((ext, value) -> {
+            long key = pack(ext, 0, ext.length());
+            if (key == 0)
+                return;
+            int i = slot(key);
+            while (keys[i] != 0 && keys[i] != key)
+                i = (i + 1) & mask;
+            if (keys[i] == 0) {
+                keys[i] = key;
+                values[i] = value;
+            }
+        });
+    }
+
+    static boolean packable(String ext) {
+        return pack(ext, 0, ext.length()) != 0;
+    }
+
+    /** Класифікує за ім'ям або повним шляхом; розширення — після останньої крапки в останньому компоненті */
+    int get(CharSequence name) {
+        int end = name.length();
+        for (int i = end - 1; i >= 0; i--) {
+            char ch = name.charAt(i);
+            if (ch == '.')
+                return lookup(pack(name, i + 1, end));
+            if (ch == '/' || ch == '\\' || end - i > MAX_EXT + 1)
+                return MISSING;
+        }
+        return MISSING;
+    }
+
+    private int lookup(long key) {
+        if (key == 0)
+            return MISSING;
+        for (int i = slot(key);; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key)
+                return values[i];
+            if (k == 0)
+                return MISSING;
+        }
+    }
+
+    /** 0 — розширення не може бути в таблиці (порожнє, задовге або не ASCII) */
+    private static long pack(CharSequence s, int from, int to) {
+        int len = to - from;
+        if (len <= 0 || len > MAX_EXT)
+            return 0;
+        long key = 0;
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (ch >= 0x80 || ch == 0)
+                return 0;
+            if (ch >= 'A' && ch <= 'Z')
+                ch += 'a' - 'A';
+            key = (key << 8) | ch;
+        }
+        return key;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 40) & mask;
+    }
+}
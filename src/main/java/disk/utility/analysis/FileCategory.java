@@ -1,7 +1,8 @@
-// src/main/java/disk/utility/analysis/FileCategory.java
 package disk.utility.analysis;
 
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 public enum FileCategory {
@@ -21,21 +22,34 @@ public enum FileCategory {
         this.exts = exts;
     }
 
+    /* ---------------- lookup table ---------------- */
+
+    private static final FileCategory[] BY_ORDINAL = values();
+    private static final ExtensionTable TABLE;
+
+    static {
+        Map<String, Integer> m = new HashMap<>();
+        for (FileCategory c : BY_ORDINAL)
+            for (String ext : c.exts)
+                m.put(ext, c.ordinal());
+        TABLE = new ExtensionTable(m);
+    }
+
+    Set<String> extensions() {
+        return exts;
+    }
+
     public boolean matches(Path p) {
-        String name = p.getFileName().toString().toLowerCase();
-        int dot = name.lastIndexOf('.');
-        if (dot == -1)
-            return this == OTHER;
-        String ext = name.substring(dot + 1);
-        if (exts.contains(ext))
-            return true;
-        return this == OTHER;
+        return of(p) == this;
     }
 
     public static FileCategory of(Path p) {
-        for (FileCategory c : values())
-            if (c != OTHER && c.matches(p))
-                return c;
-        return OTHER;
+        return of(p.toString());
+    }
+
+    /** Класифікує за ім'ям або повним шляхом; розширення — після останньої крапки в останньому компоненті */
+    public static FileCategory of(CharSequence name) {
+        int c = TABLE.get(name);
+        return c == ExtensionTable.MISSING ? OTHER : BY_ORDINAL[c];
     }
 }
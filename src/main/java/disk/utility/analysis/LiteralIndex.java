@@ -0,0 +1,122 @@
+package disk.utility.analysis;
+
+import java.util.*;
+
+/**
+ * Aho–Corasick за обов'язковими літералами правил: один прохід по рядку шляху позначає всі правила,
+ * чий літерал у ньому трапляється, скільки б правил не було. Регістр і роздільники '/' та '\'
+ * не розрізняються — це лише фільтр кандидатів, саме правило потім перевіряється точно.
+ * Переходи — у таблиці з відкритою адресацією, тож прохід нічого не створює.
+ */
+final class LiteralIndex {
+
+    private static final int[] NONE = {};
+
+    private final long[] keys; // (стан << 16 | символ) + 1; 0 — порожньо
+    private final int[] targets;
+    private final int mask;
+    private final int[] fail;
+    private final int[][] out;
+
+    /** literals[i] — літерал правила ids[i] */
+    LiteralIndex(String[] literals, int[] ids) {
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        children.add(new HashMap<>());
+        outputs.add(new ArrayList<>());
+        for (int i = 0; i < literals.length; i++) {
+            int state = 0;
+            for (int k = 0; k < literals[i].length(); k++) {
+                char c = fold(literals[i].charAt(k));
+                Integer n = children.get(state).get(c);
+                if (n == null) {
+                    n = children.size();
+                    children.get(state).put(c, n);
+                    children.add(new HashMap<>());
+                    outputs.add(new ArrayList<>());
+                }
+                state = n;
+            }
+            outputs.get(state).add(ids[i]);
+        }
+
+        /* посилання невдачі — обходом у ширину; виходи стану включають виходи його суфіксів */
+        int states = children.size();
+        fail = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>(children.get(0).values());
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (Map.Entry<Character, Integer> e : children.get(s).entrySet()) {
+                int t = e.getValue();
+                int f = fail[s];
+                while (f != 0 && !children.get(f).containsKey(e.getKey()))
+                    f = fail[f];
+                Integer g = children.get(f).get(e.getKey());
+                fail[t] = s != 0 && g != null ? g : 0;
+                outputs.get(t).addAll(outputs.get(fail[t]));
+                queue.add(t);
+            }
+        }
+        out = new int[states][];
+        for (int s = 0; s < states; s++)
+            out[s] = outputs.get(s).isEmpty() ? NONE
+                    : outputs.get(s).stream().mapToInt(Integer::intValue).distinct().toArray();
+
+        int edges = states - 1;
+        int cap = Integer.highestOneBit(Math.max(4, edges) * 4 - 1) << 1; // заповнення ≤ 25 %
+        keys = new long[cap];
+        targets = new int[cap];
+        mask = cap - 1;
+        for (int s = 0; s < states; s++)
+            for (Map.Entry<Character, Integer> e : children.get(s).entrySet()) {
+                long key = key(s, e.getKey());
+                int i = slot(key);
+                while (keys[i] != 0)
+                    i = (i + 1) & mask;
+                keys[i] = key;
+                targets[i] = e.getValue();
+            }
+    }
+
+    /** Позначає в into номери правил, чиї літерали є в s */
+    void collect(CharSequence s, BitSet into) {
+        int state = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = fold(s.charAt(i));
+            int n;
+            while ((n = step(state, c)) < 0 && state != 0)
+                state = fail[state];
+            state = Math.max(n, 0);
+            for (int id : out[state])
+                into.set(id);
+        }
+    }
+
+    private int step(int state, char c) {
+        long key = key(state, c);
+        for (int i = slot(key);; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key)
+                return targets[i];
+            if (k == 0)
+                return -1;
+        }
+    }
+
+    static char fold(char c) {
+        if (c == '\\')
+            return '/';
+        if (c < 0x80)
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        return Character.toLowerCase(Character.toUpperCase(c)); // як порівнює regex без урахування регістру
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16 | c) + 1;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 40) & mask;
+    }
+}
@@ -0,0 +1,196 @@
+package disk.utility.analysis;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.LongConsumer;
+
+/**
+ * Обхід дерева каталогів на ForkJoinPool: кожен каталог — окрема задача,
+ * підкаталоги форкаються і крадуться вільними воркерами.
+ * Кожен воркер накопичує суми у власному масиві за індексами категорій, злиття — в кінці.
+ * З індексом (AnalysisIndex) файли незмінених каталогів не перелічуються.
+ * З SpaceReport власні суми кожного каталогу додаються до його вузла дерева.
+ * Правило directories профілю визначається раз на каталог і передається файлам.
+ */
+final class ParallelWalker {
+
+    @FunctionalInterface
+    interface Visitor {
+        /** dirIndex — CategoryProfile.directoryIndex каталогу файлу */
+        void visit(Path file, BasicFileAttributes attrs, int dirIndex, long[] acc) throws IOException;
+    }
+
+    private final CategoryProfile profile;
+    private final int categories;
+    private final Visitor visitor;
+    private final AnalysisIndex index;
+    private final SpaceReport report;
+    private final LongConsumer reused;
+    private final Queue<long[]> accumulators = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<long[]> local;
+
+    private ParallelWalker(CategoryProfile profile, Visitor visitor, AnalysisIndex index, SpaceReport report,
+            LongConsumer reused) {
+        this.profile = profile;
+        this.categories = profile.size();
+        this.local = ThreadLocal.withInitial(() -> {
+            long[] a = new long[this.categories];
+            accumulators.add(a);
+            return a;
+        });
+        this.visitor = visitor;
+        this.index = index;
+        this.report = report;
+        this.reused = reused;
+    }
+
+    /**
+     * reused отримує байти, взяті з індексу без повторного обходу.
+     * Збій задачі каталогу (не помилка читання — її пропускаємо) кидається далі:
+     * часткові суми інакше виглядали б як повний результат. З тієї ж причини перерваний
+     * обхід кидає CancellationException (прапорець переривання відновлюється).
+     */
+    static long[] walk(List<Path> roots, CategoryProfile profile, Visitor visitor, AnalysisIndex index,
+            SpaceReport report, int parallelism, LongConsumer reused) {
+        ParallelWalker w = new ParallelWalker(profile, visitor, index, report, reused);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+            for (Path root : roots) {
+                try {
+                    long modified = Files.readAttributes(root, BasicFileAttributes.class)
+                            .lastModifiedTime().toMillis();
+                    tasks.add(pool.submit(w.new DirTask(root, modified, 0, null, profile.directoryIndex(root))));
+                } catch (IOException ignored) {
+                }
+            }
+            for (ForkJoinTask<Void> t : tasks)
+                t.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Directory walk failed: " + e.getCause(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return w.merge();
+    }
+
+    private long[] merge() {
+        long[] total = new long[categories];
+        for (long[] acc : accumulators)
+            for (int c = 0; c < categories; c++)
+                total[c] += acc[c];
+        return total;
+    }
+
+    private final class DirTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final long modified;
+        private final int depth;
+        private final Path bucket;
+        private final int dirIndex;
+
+        DirTask(Path dir, long modified, int depth, Path parentBucket, int dirIndex) {
+            this.dir = dir;
+            this.modified = modified;
+            this.depth = depth;
+            this.dirIndex = dirIndex;
+            this.bucket = report == null ? null : report.bucket(dir, depth, parentBucket);
+        }
+
+        @Override
+        protected void compute() {
+            List<DirTask> subtasks = new ArrayList<>();
+            long[] acc = local.get();
+
+            AnalysisIndex.Dir prev = index == null ? null : index.previous(dir);
+            if (prev != null && prev.modified() == modified) {
+                reuse(prev, acc, subtasks);
+            } else {
+                long[] own = new long[categories];
+                long largest = 0;
+                List<String> subdirs = new ArrayList<>();
+
+                try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                    for (Path p : ds) {
+                        BasicFileAttributes a;
+                        try {
+                            a = Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        } catch (IOException e) {
+                            continue;
+                        }
+                        if (a.isDirectory()) {
+                            DirTask t = new DirTask(p, a.lastModifiedTime().toMillis(), depth + 1, bucket,
+                                    profile.directoryIndex(dirIndex, p));
+                            t.fork();
+                            subtasks.add(t);
+                            subdirs.add(p.getFileName().toString());
+                        } else {
+                            if (a.isRegularFile())
+                                largest = Math.max(largest, a.size());
+                            try {
+                                visitor.visit(p, a, dirIndex, own);
+                            } catch (IOException ignored) {
+                            }
+                        }
+                    }
+                    if (index != null)
+                        index.put(dir, new AnalysisIndex.Dir(modified, own, subdirs.toArray(String[]::new),
+                                largest));
+                } catch (IOException | DirectoryIteratorException ignored) {
+                }
+                long bytes = 0;
+                for (int c = 0; c < categories; c++) {
+                    acc[c] += own[c];
+                    bytes += own[c];
+                }
+                if (report != null)
+                    report.add(bucket, bytes);
+            }
+
+            for (DirTask t : subtasks)
+                t.join();
+        }
+
+        /* каталог не змінився: суми його файлів — з індексу, підкаталоги перевіряємо окремо */
+        private void reuse(AnalysisIndex.Dir prev, long[] acc, List<DirTask> subtasks) {
+            long bytes = 0;
+            for (int c = 0; c < categories; c++) {
+                long sz = prev.sizes()[c];
+                acc[c] += sz;
+                bytes += sz;
+            }
+            index.put(dir, prev);
+            if (bytes != 0)
+                reused.accept(bytes);
+            if (report != null) {
+                report.add(bucket, bytes);
+                report.reused(dir, prev.largest());
+            }
+
+            for (String name : prev.subdirs()) {
+                Path p = dir.resolve(name);
+                try {
+                    BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (!a.isDirectory())
+                        continue;
+                    DirTask t = new DirTask(p, a.lastModifiedTime().toMillis(), depth + 1, bucket,
+                            profile.directoryIndex(dirIndex, p));
+                    t.fork();
+                    subtasks.add(t);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
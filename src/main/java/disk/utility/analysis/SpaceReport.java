@@ -0,0 +1,155 @@
+package disk.utility.analysis;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * «Куди пішло місце» — збирається тим самим обходом, що й суми за категоріями.
+ * Найбільші файли — у мін-купі на topN елементів; файл не більший за її вершину
+ * відкидається без блокування. Розміри каталогів накопичуються у вузлах до глибини
+ * maxDepth і не більше maxNodes вузлів; глибші каталоги (і ті, що не вмістились)
+ * додаються до найближчого предка-вузла. Отже, пам'ять не залежить від кількості файлів.
+ */
+public final class SpaceReport {
+
+    public record FileEntry(Path path, long size) {
+    }
+
+    /** bytes — разом із підкаталогами; children відсортовані за спаданням */
+    public record DirNode(Path path, long bytes, List<DirNode> children) {
+    }
+
+    private record Pending(Path dir, long largest) {
+    }
+
+    private final int topN;
+    private final int maxDepth;
+    private final int maxNodes;
+
+    private final PriorityQueue<FileEntry> heap = new PriorityQueue<>(Comparator.comparingLong(FileEntry::size));
+    private volatile long threshold = 0;
+    private final Map<Path, LongAdder> nodes = new ConcurrentHashMap<>();
+    private final Set<Path> roots = ConcurrentHashMap.newKeySet();
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+
+    public SpaceReport(int topN, int maxDepth, int maxNodes) {
+        this.topN = topN;
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+    }
+
+    /* ---------------- collection ---------------- */
+
+    void offer(Path file, long size) {
+        if (size <= threshold)
+            return;
+        synchronized (heap) {
+            if (heap.size() < topN) {
+                heap.add(new FileEntry(file, size));
+            } else if (size > heap.peek().size()) {
+                heap.poll();
+                heap.add(new FileEntry(file, size));
+            }
+            if (heap.size() == topN)
+                threshold = heap.peek().size();
+        }
+    }
+
+    /**
+     * Вузол, до якого додаються файли каталогу. parentBucket — вузол батьківського каталогу
+     * (null для кореня обходу).
+     */
+    Path bucket(Path dir, int depth, Path parentBucket) {
+        if (parentBucket == null) {
+            roots.add(dir);
+            nodes.computeIfAbsent(dir, __ -> new LongAdder());
+            return dir;
+        }
+        if (depth > maxDepth || nodes.size() >= maxNodes)
+            return parentBucket;
+        nodes.computeIfAbsent(dir, __ -> new LongAdder());
+        return dir;
+    }
+
+    void add(Path bucket, long bytes) {
+        if (bytes != 0)
+            nodes.get(bucket).add(bytes);
+    }
+
+    /** Каталог узято з індексу, його файли не перелічувались; largest — найбільший файл у ньому */
+    void reused(Path dir, long largest) {
+        if (largest > threshold)
+            pending.add(new Pending(dir, largest));
+    }
+
+    /**
+     * Досипає в купу файли з каталогів, узятих з індексу. Каталог перелічується лише тоді,
+     * коли його найбільший файл міг би потрапити в купу, — тож таких каталогів не більше topN.
+     */
+    void complete(Predicate<BasicFileAttributes> filter) {
+        List<Pending> list = new ArrayList<>(pending);
+        pending.clear();
+        list.sort(Comparator.comparingLong(Pending::largest).reversed());
+        for (Pending p : list) {
+            if (p.largest <= threshold)
+                break;
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(p.dir)) {
+                for (Path f : ds) {
+                    try {
+                        BasicFileAttributes a = Files.readAttributes(f, BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS);
+                        if (filter.test(a))
+                            offer(f, a.size());
+                    } catch (IOException ignored) {
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException ignored) {
+            }
+        }
+    }
+
+    /* ---------------- results ---------------- */
+
+    /** За спаданням розміру */
+    public List<FileEntry> largestFiles() {
+        List<FileEntry> out;
+        synchronized (heap) {
+            out = new ArrayList<>(heap);
+        }
+        out.sort(Comparator.comparingLong(FileEntry::size).reversed());
+        return out;
+    }
+
+    /** Дерево з рекурсивними сумами; вузли менші за minBytes не показуються (їх байти вже в предку) */
+    public List<DirNode> tree(long minBytes) {
+        Map<Path, List<Path>> children = new HashMap<>();
+        for (Path p : nodes.keySet())
+            if (!roots.contains(p))
+                children.computeIfAbsent(p.getParent(), __ -> new ArrayList<>()).add(p);
+
+        List<DirNode> out = new ArrayList<>();
+        for (Path r : roots)
+            out.add(build(r, children, minBytes));
+        out.sort(Comparator.comparingLong(DirNode::bytes).reversed());
+        return out;
+    }
+
+    private DirNode build(Path p, Map<Path, List<Path>> children, long minBytes) {
+        long bytes = nodes.get(p).sum();
+        List<DirNode> kids = new ArrayList<>();
+        for (Path c : children.getOrDefault(p, List.of())) {
+            DirNode n = build(c, children, minBytes);
+            bytes += n.bytes;
+            if (n.bytes >= minBytes)
+                kids.add(n);
+        }
+        kids.sort(Comparator.comparingLong(DirNode::bytes).reversed());
+        return new DirNode(p, bytes, kids);
+    }
+}
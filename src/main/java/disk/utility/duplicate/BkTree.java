@@ -0,0 +1,78 @@
+package disk.utility.duplicate;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.IntConsumer;
+
+/**
+ * BK-дерево 64-бітних хешів за відстанню Геммінга. Пошук у радіусі r обходить лише ті
+ * піддерева, для яких |d(запит, вузол) − ребро| ≤ r (нерівність трикутника), тож для малих r
+ * порівнюється частка хешів, а не всі пари. Однакові хеші ділять один вузол.
+ */
+final class BkTree {
+
+    private static final class Node {
+        final long hash;
+        int[] ids = new int[1];
+        int count;
+        Node[] children; // за відстанню 0..64; створюється при першому нащадку
+
+        Node(long hash) {
+            this.hash = hash;
+        }
+
+        void addId(int id) {
+            if (count == ids.length)
+                ids = Arrays.copyOf(ids, count * 2);
+            ids[count++] = id;
+        }
+    }
+
+    private Node root;
+
+    void add(long hash, int id) {
+        if (root == null) {
+            root = new Node(hash);
+            root.addId(id);
+            return;
+        }
+        Node n = root;
+        while (true) {
+            int d = PerceptualHash.distance(hash, n.hash);
+            if (d == 0) {
+                n.addId(id);
+                return;
+            }
+            if (n.children == null)
+                n.children = new Node[Long.SIZE + 1];
+            if (n.children[d] == null) {
+                Node c = new Node(hash);
+                c.addId(id);
+                n.children[d] = c;
+                return;
+            }
+            n = n.children[d];
+        }
+    }
+
+    /** Передає в out номери всіх хешів на відстані не більше maxDistance */
+    void search(long hash, int maxDistance, IntConsumer out) {
+        if (root == null)
+            return;
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node n = stack.pop();
+            int d = PerceptualHash.distance(hash, n.hash);
+            if (d <= maxDistance)
+                for (int i = 0; i < n.count; i++)
+                    out.accept(n.ids[i]);
+            if (n.children == null)
+                continue;
+            for (int e = Math.max(1, d - maxDistance); e <= Math.min(Long.SIZE, d + maxDistance); e++)
+                if (n.children[e] != null)
+                    stack.push(n.children[e]);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package disk.utility.duplicate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * Побайтова перевірка групи кандидатів: усі файли читаються синхронно блоками,
+ * група розщеплюється щойно якийсь блок відрізняється. Для груп, що насправді
+ * різні, читання закінчується на першому відмінному блоці.
+ */
+final class ByteVerifier {
+
+    private static final int CHUNK = 64 * 1024;
+    /* обмеження на кількість одночасно відкритих файлів */
+    private static final int MAX_OPEN = 128;
+
+    private ByteVerifier() {
+    }
+
+    /** Повертає підгрупи з ідентичним вмістом (лише розміру ≥ 2) */
+    static <T> List<List<T>> split(List<T> group, Function<T, Path> path, LongConsumer bytesRead) {
+        if (group.size() <= MAX_OPEN)
+            return toItems(group, lockstep(group, path, bytesRead));
+
+        /* завелика група: порівнюємо пачками з першим файлом-еталоном (індекс 0 у кожній пачці) */
+        T ref = group.get(0);
+        List<T> same = new ArrayList<>(List.of(ref));
+        List<T> rest = new ArrayList<>();
+        for (int i = 1; i < group.size(); i += MAX_OPEN - 1) {
+            List<T> batch = new ArrayList<>(MAX_OPEN);
+            batch.add(ref);
+            batch.addAll(group.subList(i, Math.min(group.size(), i + MAX_OPEN - 1)));
+            boolean[] matched = new boolean[batch.size()];
+            for (List<Integer> g : lockstep(batch, path, bytesRead))
+                if (g.get(0) == 0)
+                    for (int k : g)
+                        matched[k] = true;
+            for (int k = 1; k < batch.size(); k++)
+                (matched[k] ? same : rest).add(batch.get(k));
+        }
+
+        List<List<T>> out = new ArrayList<>();
+        if (same.size() > 1)
+            out.add(same);
+        if (rest.size() > 1)
+            out.addAll(split(rest, path, bytesRead));
+        return out;
+    }
+
+    private static <T> List<List<T>> toItems(List<T> group, List<List<Integer>> idx) {
+        List<List<T>> out = new ArrayList<>(idx.size());
+        for (List<Integer> g : idx) {
+            List<T> l = new ArrayList<>(g.size());
+            for (int i : g)
+                l.add(group.get(i));
+            out.add(l);
+        }
+        return out;
+    }
+
+    /* індекси файлів групи, розбиті на підгрупи з однаковим вмістом */
+    private static <T> List<List<Integer>> lockstep(List<T> group, Function<T, Path> path, LongConsumer bytesRead) {
+        int n = group.size();
+        FileChannel[] ch = new FileChannel[n];
+        ByteBuffer[] buf = new ByteBuffer[n];
+        try {
+            List<List<Integer>> active = new ArrayList<>();
+            List<Integer> all = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                try {
+                    ch[i] = FileChannel.open(path.apply(group.get(i)), StandardOpenOption.READ);
+                    buf[i] = ByteBuffer.allocate(CHUNK);
+                    all.add(i);
+                } catch (IOException ignored) {
+                    // файл не читається — не може бути підтвердженим дублікатом
+                }
+            }
+            if (all.size() > 1)
+                active.add(all);
+
+            List<List<Integer>> done = new ArrayList<>();
+            for (long pos = 0; !active.isEmpty(); pos += CHUNK) {
+                List<List<Integer>> next = new ArrayList<>();
+                for (List<Integer> g : active) {
+                    boolean eof = true;
+                    List<Integer> ok = new ArrayList<>(g.size());
+                    for (int i : g) {
+                        int r = read(ch[i], buf[i], pos, bytesRead);
+                        if (r < 0)
+                            continue; // помилка читання — файл випадає з групи
+                        eof &= r < CHUNK;
+                        ok.add(i);
+                    }
+                    for (List<Integer> part : partition(ok, buf))
+                        if (part.size() > 1)
+                            (eof ? done : next).add(part);
+                }
+                active = next;
+            }
+
+            return done;
+        } finally {
+            for (FileChannel c : ch)
+                if (c != null)
+                    try {
+                        c.close();
+                    } catch (IOException ignored) {
+                    }
+        }
+    }
+
+    private static int read(FileChannel ch, ByteBuffer buf, long pos, LongConsumer bytesRead) {
+        buf.clear();
+        try {
+            while (buf.hasRemaining()) {
+                int r = ch.read(buf, pos + buf.position());
+                if (r == -1)
+                    break;
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+        buf.flip();
+        bytesRead.accept(buf.remaining());
+        return buf.remaining();
+    }
+
+    /* розбиває індекси за вмістом поточного блоку */
+    private static List<List<Integer>> partition(List<Integer> g, ByteBuffer[] buf) {
+        List<List<Integer>> parts = new ArrayList<>();
+        outer:
+        for (int i : g) {
+            for (List<Integer> p : parts) {
+                if (buf[p.get(0)].equals(buf[i])) {
+                    p.add(i);
+                    continue outer;
+                }
+            }
+            List<Integer> p = new ArrayList<>();
+            p.add(i);
+            parts.add(p);
+        }
+        return parts;
+    }
+}
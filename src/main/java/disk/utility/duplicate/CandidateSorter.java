@@ -0,0 +1,320 @@
+package disk.utility.duplicate;
+
+import disk.utility.duplicate.DuplicateFinderService.Entry;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Групування кандидатів за ключем (розмір, хеш імені, дата) з обмеженням пам'яті.
+ * Файли накопичуються у FileInventory; коли його розмір перевищує бюджет, він сортується
+ * і скидається в тимчасовий файл-серію. Групи видаються злиттям серій за один прохід,
+ * тож у пам'яті одночасно — один блок інвентаря або по одному запису на серію плюс поточна група.
+ * Без скидань групування відбувається в пам'яті.
+ */
+final class CandidateSorter implements Closeable {
+
+    private static final int RUN_BUFFER = 1 << 16;
+    /* менший бюджет дав би тисячі дрібних серій */
+    private static final long MIN_BUDGET = 4L << 20;
+
+    private final boolean bySize;
+    private final boolean byName;
+    private final boolean byDate;
+    private final long budget;
+
+    private FileInventory inv = new FileInventory();
+    private final Deque<Integer> dirIds = new ArrayDeque<>();
+    private final Deque<String> dirNames = new ArrayDeque<>();
+    private final List<Path> runs = new ArrayList<>();
+
+    CandidateSorter(boolean bySize, boolean byName, boolean byDate, long budget) {
+        this.bySize = bySize;
+        this.byName = byName;
+        this.byDate = byDate;
+        this.budget = Math.max(budget, MIN_BUDGET);
+    }
+
+    /* ---------------- filling ---------------- */
+
+    void enter(Path dir) {
+        String name = dirIds.isEmpty() ? dir.toString() : dir.getFileName().toString();
+        dirIds.push(inv.addDirectory(dirIds.isEmpty() ? -1 : dirIds.peek(), name));
+        dirNames.push(name);
+    }
+
+    void leave() {
+        dirIds.pop();
+        dirNames.pop();
+    }
+
+    boolean inDirectory() {
+        return !dirIds.isEmpty();
+    }
+
+    /* обхід кореня обірвався — каталоги, з яких він не вийшов, більше не поточні */
+    void leaveAll() {
+        dirIds.clear();
+        dirNames.clear();
+    }
+
+    void add(String name, BasicFileAttributes a) throws IOException {
+        inv.add(dirIds.peek(), name, a);
+        if (inv.footprint() > budget)
+            spill();
+    }
+
+    /* новий блок інвентаря починається з поточного ланцюжка каталогів */
+    private void spill() throws IOException {
+        writeRun();
+        inv = new FileInventory();
+        List<String> chain = new ArrayList<>(dirNames);
+        Collections.reverse(chain);
+        dirIds.clear();
+        int parent = -1;
+        for (String n : chain) {
+            parent = inv.addDirectory(parent, n);
+            dirIds.push(parent);
+        }
+    }
+
+    private void writeRun() throws IOException {
+        if (inv.size() == 0)
+            return;
+        int[] nameHash = nameHashes(inv);
+        int[] ids = sorted(inv, nameHash);
+        Path run = Files.createTempFile("du-run-", ".bin");
+        run.toFile().deleteOnExit();
+        runs.add(run);
+        try (DataOutputStream o = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER))) {
+            for (int id : ids) {
+                o.writeLong(bySize ? inv.size(id) : 0);
+                o.writeInt(nameHash == null ? 0 : nameHash[id]);
+                o.writeLong(byDate ? inv.modified(id) : 0);
+                o.writeLong(inv.size(id));
+                o.writeLong(inv.modified(id));
+                writeString(o, Objects.toString(inv.fileKey(id), ""));
+                writeString(o, inv.path(id).toString());
+            }
+        }
+    }
+
+    /* довжина + байти UTF-8: writeUTF обмежений 65535 байтами, а шлях буває довшим */
+    private static void writeString(DataOutputStream o, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        o.writeInt(b.length);
+        o.write(b);
+    }
+
+    /* ---------------- grouping ---------------- */
+
+    /** Видає групи з двох і більше файлів у порядку ключа */
+    void forEachGroup(Consumer<List<Entry>> sink) throws IOException {
+        if (runs.isEmpty()) {
+            groupInMemory(sink);
+            return;
+        }
+        writeRun();
+        inv = new FileInventory();
+        merge(sink);
+    }
+
+    private void groupInMemory(Consumer<List<Entry>> sink) {
+        int n = inv.size();
+        int[] nameHash = nameHashes(inv);
+        int[] ids = sorted(inv, nameHash);
+        IdOrder order = order(inv, nameHash);
+        for (int from = 0, to; from < n; from = to) {
+            to = from + 1;
+            while (to < n && order.compare(ids[from], ids[to]) == 0)
+                to++;
+            if (to - from < 2)
+                continue;
+            List<Entry> g = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                int id = ids[i];
+                g.add(new Entry(inv.path(id), inv.size(id), inv.modified(id), inv.fileKey(id)));
+            }
+            emit(g, sink);
+        }
+    }
+
+    private void merge(Consumer<List<Entry>> sink) throws IOException {
+        PriorityQueue<RunReader> heap = new PriorityQueue<>(RunReader::compareKey);
+        List<RunReader> open = new ArrayList<>();
+        try {
+            for (Path run : runs) {
+                RunReader r = new RunReader(run);
+                open.add(r);
+                if (r.next())
+                    heap.add(r);
+            }
+            List<Entry> group = new ArrayList<>();
+            long k1 = 0, k3 = 0;
+            int k2 = 0;
+            while (!heap.isEmpty()) {
+                RunReader r = heap.poll();
+                if (!group.isEmpty() && (r.k1 != k1 || r.k2 != k2 || r.k3 != k3)) {
+                    if (group.size() > 1)
+                        emit(group, sink);
+                    group = new ArrayList<>();
+                }
+                k1 = r.k1;
+                k2 = r.k2;
+                k3 = r.k3;
+                group.add(r.entry());
+                if (r.next())
+                    heap.add(r);
+            }
+            if (group.size() > 1)
+                emit(group, sink);
+        } finally {
+            for (RunReader r : open)
+                r.close();
+        }
+    }
+
+    /* однаковий хеш імені ще не означає однакове ім'я */
+    private void emit(List<Entry> group, Consumer<List<Entry>> sink) {
+        if (!byName) {
+            sink.accept(group);
+            return;
+        }
+        Map<String, List<Entry>> byText = new HashMap<>();
+        for (Entry e : group)
+            byText.computeIfAbsent(e.path().getFileName().toString().toLowerCase(), __ -> new ArrayList<>()).add(e);
+        for (List<Entry> l : byText.values())
+            if (l.size() > 1)
+                sink.accept(l);
+    }
+
+    @Override
+    public void close() {
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException ignored) {
+            }
+        }
+        runs.clear();
+    }
+
+    /* ---------------- sorting ---------------- */
+
+    private int[] nameHashes(FileInventory inv) {
+        if (!byName)
+            return null;
+        int[] h = new int[inv.size()];
+        for (int i = 0; i < h.length; i++)
+            h[i] = inv.name(i).toLowerCase().hashCode();
+        return h;
+    }
+
+    private IdOrder order(FileInventory inv, int[] nameHash) {
+        return (a, b) -> {
+            int c = bySize ? Long.compare(inv.size(a), inv.size(b)) : 0;
+            if (c == 0 && nameHash != null)
+                c = Integer.compare(nameHash[a], nameHash[b]);
+            if (c == 0 && byDate)
+                c = Long.compare(inv.modified(a), inv.modified(b));
+            return c;
+        };
+    }
+
+    private int[] sorted(FileInventory inv, int[] nameHash) {
+        int[] ids = new int[inv.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = i;
+        sort(ids, order(inv, nameHash));
+        return ids;
+    }
+
+    @FunctionalInterface
+    private interface IdOrder {
+        int compare(int a, int b);
+    }
+
+    /* стабільне сортування злиттям int[] без упаковки в Integer */
+    private static void sort(int[] a, IdOrder c) {
+        mergeSort(a, a.clone(), 0, a.length, c);
+    }
+
+    private static void mergeSort(int[] a, int[] tmp, int from, int to, IdOrder c) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int v = a[i];
+                int j = i - 1;
+                while (j >= from && c.compare(a[j], v) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = v;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, tmp, from, mid, c);
+        mergeSort(a, tmp, mid, to, c);
+        if (c.compare(a[mid - 1], a[mid]) <= 0)
+            return;
+        System.arraycopy(a, from, tmp, from, to - from);
+        for (int i = from, l = from, r = mid; i < to; i++)
+            a[i] = r >= to || (l < mid && c.compare(tmp[l], tmp[r]) <= 0) ? tmp[l++] : tmp[r++];
+    }
+
+    /* ---------------- run files ---------------- */
+
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        long k1, k3, size, modified;
+        int k2;
+        String fileKey, path;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), RUN_BUFFER));
+        }
+
+        boolean next() throws IOException {
+            try {
+                k1 = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            k2 = in.readInt();
+            k3 = in.readLong();
+            size = in.readLong();
+            modified = in.readLong();
+            fileKey = readString();
+            path = readString();
+            return true;
+        }
+
+        private String readString() throws IOException {
+            byte[] b = new byte[in.readInt()];
+            in.readFully(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        Entry entry() {
+            return new Entry(Path.of(path), size, modified, fileKey.isEmpty() ? null : fileKey);
+        }
+
+        int compareKey(RunReader o) {
+            int c = Long.compare(k1, o.k1);
+            if (c == 0)
+                c = Integer.compare(k2, o.k2);
+            return c != 0 ? c : Long.compare(k3, o.k3);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package disk.utility.duplicate;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Алгоритм хешування вмісту файлів для пошуку дублікатів.
+ * Швидкий некриптографічний хеш підходить для відбору кандидатів,
+ * SHA-256 — коли потрібна криптографічна стійкість.
+ */
+public interface ContentHasher {
+
+    ContentHasher XXH64 = new XxHash64();
+    ContentHasher SHA256 = new MessageDigestHasher("SHA-256");
+
+    /** Коротка стабільна назва; також використовується як простір імен у кеші */
+    String name();
+
+    /**
+     * true — збіг дайджесту сам по собі підтверджує однаковий вміст (криптографічний хеш).
+     * Групи за нестійким хешем перед видачею звіряються побайтово.
+     */
+    boolean collisionResistant();
+
+    State start();
+
+    /** Потоковий стан одного обчислення */
+    interface State {
+        void update(byte[] b, int off, int len);
+
+        /** Споживає байти від position до limit без копіювання в byte[] (direct / mapped буфери) */
+        void update(ByteBuffer buf);
+
+        byte[] digest();
+    }
+}
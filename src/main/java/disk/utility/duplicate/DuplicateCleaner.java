@@ -0,0 +1,280 @@
+package disk.utility.duplicate;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import disk.utility.ProgressMeter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Прибирання вибраних дублікатів у фоні. Цілі групуються за каталогом: каталог — одне завдання
+ * невеликого пулу, тож потоки не змагаються за той самий каталог, а різні каталоги обробляються
+ * паралельно. Кожна виконана дія записується в журнал (JSON на рядок, шлях, розмір, хеш), тому
+ * переміщення в карантин і заміну жорстким посиланням можна відкотити через restore().
+ */
+public final class DuplicateCleaner {
+
+    public enum Mode {
+        /** Файл видаляється; не відкочується */
+        DELETE,
+        /**
+         * Файл замінюється жорстким посиланням на keep — місце звільняється, шлях лишається.
+         * Лише для цілей з хешем вмісту; перед заміною вміст звіряється з keep побайтово
+         */
+        HARDLINK,
+        /** Файл переноситься в папку карантину зі збереженням шляху */
+        QUARANTINE
+    }
+
+    /** keep — копія, що лишається; для HARDLINK на неї вказуватиме посилання */
+    public record Target(Path file, long size, String hash, Path keep) {
+    }
+
+    /** done — номери цілей (у порядку списку), оброблених успішно */
+    public record Result(BitSet done, int failed, Path journal) {
+    }
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private static final String LINK_SUFFIX = ".du-link";
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private DuplicateCleaner() {
+    }
+
+    public static Path defaultJournalDir() {
+        return Path.of(System.getProperty("user.home"), ".disk-utility", "journal");
+    }
+
+    public static Path defaultQuarantine() {
+        return Path.of(System.getProperty("user.home"), ".disk-utility", "quarantine");
+    }
+
+    /* ---------------- cleanup ---------------- */
+
+    /**
+     * Обробляє цілі в режимі mode. Переривання потоку зупиняє обробку між файлами;
+     * уже виконане лишається в журналі і в результаті.
+     */
+    public static Result clean(List<Target> targets, Mode mode, Path quarantine, Path journalDir,
+            int parallelism, ProgressMeter progress) throws IOException {
+        long total = 0;
+        Map<Path, List<Integer>> byDir = new LinkedHashMap<>();
+        for (int i = 0; i < targets.size(); i++) {
+            total += targets.get(i).size;
+            byDir.computeIfAbsent(targets.get(i).file.toAbsolutePath().getParent(), __ -> new ArrayList<>()).add(i);
+        }
+        progress.setTotal(total);
+
+        String stamp = LocalDateTime.now().format(STAMP);
+        Files.createDirectories(journalDir);
+        Path journal = journalDir.resolve("cleanup-" + stamp + ".jsonl");
+        Path session = quarantine == null ? null : quarantine.resolve(stamp);
+
+        BitSet done = new BitSet(targets.size());
+        AtomicInteger failed = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "DU-clean-" + UUID.randomUUID());
+            t.setDaemon(true);
+            return t;
+        });
+
+        /* пул зупиняється у внутрішньому finally — до закриття журналу, тож кожна виконана дія в нього потрапить */
+        try (BufferedWriter out = Files.newBufferedWriter(journal, StandardCharsets.UTF_8)) {
+            try {
+                List<Future<?>> batches = new ArrayList<>(byDir.size());
+                for (List<Integer> batch : byDir.values())
+                    batches.add(pool.submit(() -> {
+                        for (int i : batch) {
+                            if (cancelled.get())
+                                break;
+                            Target t = targets.get(i);
+                            Path to;
+                            try {
+                                to = apply(t, mode, session);
+                            } catch (IOException | RuntimeException e) {
+                                failed.incrementAndGet();
+                                progress.add(1, t.size);
+                                continue;
+                            }
+                            synchronized (done) {
+                                done.set(i);
+                            }
+                            /* рядок на кожну дію, одразу у файл: після збою процесу відкотиться все, що зроблено */
+                            synchronized (out) {
+                                out.write(entry(mode, t, to).toString());
+                                out.newLine();
+                                out.flush();
+                            }
+                            progress.add(1, t.size);
+                        }
+                        return null;
+                    }));
+                for (Future<?> f : batches) {
+                    try {
+                        f.get();
+                    } catch (InterruptedException e) {
+                        cancelled.set(true);
+                        Thread.currentThread().interrupt();
+                        break;
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof IOException io)
+                            throw io;
+                        throw new IllegalStateException(e.getCause());
+                    }
+                }
+            } finally {
+                cancelled.set(true);
+                stop(pool);
+            }
+        }
+        synchronized (done) {
+            return new Result((BitSet) done.clone(), failed.get(), journal);
+        }
+    }
+
+    /* нові батчі не починаються, а розпочаті дописують поточну дію в журнал; чекаємо, скільки б це не тривало */
+    private static void stop(ExecutorService pool) {
+        pool.shutdown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (pool.awaitTermination(1, TimeUnit.SECONDS))
+                    break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /* виконує дію над одним файлом; повертає, куди він подівся (null для DELETE) */
+    private static Path apply(Target t, Mode mode, Path session) throws IOException {
+        switch (mode) {
+            case DELETE -> {
+                Files.delete(t.file);
+                return null;
+            }
+            case HARDLINK -> {
+                /* без порівняння вмісту файл з іншими даними замінився б посиланням — і відкат їх не поверне */
+                if (t.hash == null)
+                    throw new IOException("Content was not compared: " + t.file);
+                if (t.keep == null || t.keep.equals(t.file))
+                    throw new IOException("No file to link to: " + t.file);
+                if (Files.isSameFile(t.file, t.keep))
+                    return t.keep; // уже посилання на той самий файл
+                if (Files.size(t.keep) != t.size || Files.size(t.file) != t.size)
+                    throw new IOException("Kept copy changed: " + t.keep);
+                /* побайтово безпосередньо перед заміною: хеш міг збігтися випадково, файли — змінитися після пошуку */
+                if (ByteVerifier.split(List.of(t.file, t.keep), f -> f, n -> {}).isEmpty())
+                    throw new IOException("Content differs from kept copy: " + t.file);
+                /* посилання створюється поруч і атомарно підміняє файл — шлях не зникає ні на мить */
+                Path tmp = t.file.resolveSibling(t.file.getFileName() + LINK_SUFFIX);
+                Files.deleteIfExists(tmp);
+                Files.createLink(tmp, t.keep);
+                try {
+                    Files.move(tmp, t.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    Files.deleteIfExists(tmp);
+                    throw e;
+                }
+                return t.keep;
+            }
+            case QUARANTINE -> {
+                if (session == null)
+                    throw new IOException("No quarantine folder");
+                Path dest = quarantined(session, t.file);
+                Files.createDirectories(dest.getParent());
+                Files.move(t.file, dest);
+                return dest;
+            }
+        }
+        throw new IllegalArgumentException(mode.name());
+    }
+
+    /* session/<диск>/<повний шлях>: C:\a\b.txt → session/C/a/b.txt, /a/b.txt → session/a/b.txt */
+    private static Path quarantined(Path session, Path file) {
+        Path abs = file.toAbsolutePath();
+        Path dest = session;
+        if (abs.getRoot() != null) {
+            String root = abs.getRoot().toString().replaceAll("[:\\\\/]", "");
+            if (!root.isEmpty())
+                dest = dest.resolve(root);
+        }
+        for (Path part : abs)
+            dest = dest.resolve(part.toString());
+        return dest;
+    }
+
+    private static JsonObject entry(Mode mode, Target t, Path to) {
+        JsonObject o = new JsonObject();
+        o.addProperty("mode", mode.name());
+        o.addProperty("path", t.file.toAbsolutePath().toString());
+        o.addProperty("size", t.size);
+        if (t.hash != null)
+            o.addProperty("hash", t.hash);
+        if (to != null)
+            o.addProperty("to", to.toAbsolutePath().toString());
+        return o;
+    }
+
+    /* ---------------- undo ---------------- */
+
+    /**
+     * Відкочує прибирання за журналом: файли з карантину повертаються на місце, посилання
+     * замінюються окремими копіями. Видалені файли не відновлюються. Повертає кількість відновлених.
+     */
+    public static int restore(Path journal, ProgressMeter progress) throws IOException {
+        List<JsonObject> entries = new ArrayList<>();
+        long total = 0;
+        try (BufferedReader in = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            for (String line; (line = in.readLine()) != null;) {
+                if (line.isBlank())
+                    continue;
+                JsonObject o = JsonParser.parseString(line).getAsJsonObject();
+                if (!Mode.DELETE.name().equals(o.get("mode").getAsString()) && o.has("to")) {
+                    entries.add(o);
+                    total += o.get("size").getAsLong();
+                }
+            }
+        }
+        progress.setTotal(total);
+
+        int restored = 0;
+        for (JsonObject o : entries) {
+            if (Thread.currentThread().isInterrupted())
+                break;
+            Path path = Path.of(o.get("path").getAsString());
+            Path to = Path.of(o.get("to").getAsString());
+            try {
+                if (Mode.QUARANTINE.name().equals(o.get("mode").getAsString())) {
+                    if (Files.exists(path, LinkOption.NOFOLLOW_LINKS))
+                        continue; // на місці вже щось є — не перезаписуємо
+                    Files.createDirectories(path.getParent());
+                    Files.move(to, path);
+                } else {
+                    /* окрема копія поруч, потім атомарна підміна посилання */
+                    Path tmp = path.resolveSibling(path.getFileName() + LINK_SUFFIX);
+                    Files.copy(to, tmp, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                restored++;
+            } catch (IOException ignored) {
+            }
+            progress.add(1, o.get("size").getAsLong());
+        }
+        return restored;
+    }
+}
@@ -1,17 +1,41 @@
 package disk.utility.duplicate;
 
+import disk.utility.ProgressMeter;
+import disk.utility.analysis.FileCategory;
+
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.security.DigestInputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.function.BiConsumer;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class DuplicateFinderService {
 
+    /* скільки байтів з початку і з кінця файлу читає часткове хешування */
+    private static final int PARTIAL_BYTES = 4096;
+
+    /* повне хешування: direct-буфер на потік; великі файли — через mmap-вікна */
+    private static final int READ_BUFFER = 1 << 20;
+    private static final long MMAP_THRESHOLD = 256L << 20;
+    private static final long MMAP_WINDOW = 64L << 20;
+    /* на Windows відображений файл не можна видалити до GC буфера, а ми потім видаляємо дублікати */
+    private static final boolean MMAP_ALLOWED = !System.getProperty("os.name", "").toLowerCase().startsWith("win");
+    private static final ThreadLocal<ByteBuffer> DIRECT = ThreadLocal
+            .withInitial(() -> ByteBuffer.allocateDirect(READ_BUFFER));
+
+    /* простір імен perceptual-хешів у HashCache */
+    private static final String DHASH = "DHASH";
+
+    /* оцінка розміру Entry з Path у купі — для бюджету пакета груп */
+    private static final long ENTRY_BYTES = 256;
+
+    private static final HashCache CACHE = new HashCache(HashCache.defaultFile(), HashCache.DEFAULT_MAX_ENTRIES);
+
     /* ---------------- options ---------------- */
     public record Options(
             boolean matchName,
@@ -25,14 +49,186 @@ public class DuplicateFinderService {
             long minBytes,
             long maxBytes,
             List<Path> includes,
-            List<Path> excludes) {
+            List<Path> excludes,
+            int readers,
+            ContentHasher hasher,
+            boolean verifyBytes,
+            long memoryBudget) {
+    }
+
+    /**
+     * Підтверджена група дублікатів.
+     * files — шляхи групи; sizes — їхні розміри у порядку files.
+     * links — скільки шляхів до того самого файлу (inode) знайдено для кожного з files; 1 — лише цей.
+     * hash — "алгоритм:hex" дайджесту вмісту ("алгоритм-partial:hex", якщо вміст звірено побайтово
+     * без повного хешу) або null, якщо вміст не порівнювався.
+     * linked — шляхи до одного й того самого файлу (жорсткі посилання): видалення не звільнить місця.
+     */
+    public record Group(List<Path> files, long[] sizes, int[] links, String hash, boolean linked) {
+
+        public long total() {
+            long t = 0;
+            for (long s : sizes)
+                t += s;
+            return t;
+        }
+
+        /** Скільки звільнить видалення i-го файлу: файл з іншими посиланнями лишиться на диску */
+        public long freed(int i) {
+            return linked || links[i] > 1 ? 0 : sizes[i];
+        }
+
+        /**
+         * Скільки звільниться, якщо лишити одну копію. Лишається файл з іншими посиланнями
+         * (його видалення нічого не дає), а коли таких немає — найбільший.
+         */
+        public long reclaimable() {
+            if (linked)
+                return 0;
+            long free = 0, max = 0;
+            boolean shared = false;
+            for (int i = 0; i < sizes.length; i++) {
+                if (links[i] > 1) {
+                    shared = true;
+                    continue;
+                }
+                free += sizes[i];
+                max = Math.max(max, sizes[i]);
+            }
+            return shared ? free : free - max;
+        }
     }
 
     /* ---------------- main API ---------------- */
-    public static List<List<Path>> findDuplicates(Options opt, BiConsumer<Long, Long> progress) {
-        List<Path> files = new ArrayList<>();
 
-        /* 1. collect all candidate files */
+    /** Усі групи одразу, за спаданням місця, яке можна звільнити */
+    public static List<Group> findDuplicates(Options opt, ProgressMeter progress) {
+        List<Group> result = Collections.synchronizedList(new ArrayList<>());
+        findDuplicates(opt, progress, result::add);
+        List<Group> sorted = new ArrayList<>(result);
+        sorted.sort(Comparator.comparingLong(Group::reclaimable).reversed());
+        return sorted;
+    }
+
+    /**
+     * Потокова версія: кожна група передається в sink, щойно її підтверджено.
+     * sink викликається з потоків пулу читачів одночасно — має бути потокобезпечним.
+     * Повертається, коли всі групи видано.
+     */
+    public static void findDuplicates(Options opt, ProgressMeter progress, Consumer<Group> sink) {
+        CACHE.resetStats();
+
+        try (CandidateSorter sorter = new CandidateSorter(opt.matchSize || opt.matchContent, opt.matchName,
+                opt.matchDate, opt.memoryBudget / 2)) {
+            /* 1. collect all candidate files; attributes are kept, not re-read */
+            for (Path root : opt.includes) {
+                if (!Files.exists(root))
+                    continue;
+                try {
+                    Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes a) {
+                            sorter.enter(d);
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult postVisitDirectory(Path d, IOException exc) {
+                            sorter.leave();
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFile(Path p, BasicFileAttributes a) {
+                            progress.add(1, 0);
+                            if (shouldSkip(p, a, opt))
+                                return FileVisitResult.CONTINUE;
+                            /* корінь — сам файл: його каталог стає коренем лише для нього */
+                            boolean single = !sorter.inDirectory();
+                            try {
+                                if (single)
+                                    sorter.enter(p.toAbsolutePath().getParent());
+                                sorter.add(p.getFileName().toString(), a);
+                                if (single)
+                                    sorter.leave();
+                            } catch (IOException e) {
+                                /* не вдалося скинути серію — це збій тимчасового сховища, а не кореня */
+                                throw new UncheckedIOException(e);
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path f, IOException exc) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                } catch (IOException ignored) {
+                    sorter.leaveAll();
+                }
+            }
+
+            /* 2. group by name / size / date (singletons dropped); without content matching that is final */
+            if (!opt.matchContent) {
+                sorter.forEachGroup(g -> {
+                    List<Entry> unique = distinctFiles(g, sink);
+                    if (unique.size() > 1)
+                        sink.accept(toGroup(unique, null));
+                });
+                return;
+            }
+
+            /*
+             * 3. content: each group runs its own asynchronous pipeline on the reader pool, so groups are
+             * emitted as soon as they are confirmed. Files in flight are bounded by the other half of the budget.
+             */
+            CACHE.load();
+            ExecutorService pool = readerPool(opt.readers);
+            int permits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, opt.memoryBudget / 2 / ENTRY_BYTES));
+            Semaphore inFlight = new Semaphore(permits);
+            try {
+                sorter.forEachGroup(all -> {
+                    List<Entry> g = distinctFiles(all, sink);
+                    if (g.size() < 2)
+                        return;
+                    int n = Math.min(g.size(), permits);
+                    long estimate = 0;
+                    for (Entry e : g)
+                        estimate += partialLength(e.size) + (e.size > 2L * PARTIAL_BYTES ? e.size : 0);
+                    progress.addTotal(estimate);
+                    try {
+                        inFlight.acquire(n);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new CancellationException();
+                    }
+                    confirm(g, opt, progress, pool, sink).whenComplete((v, ex) -> inFlight.release(n));
+                });
+                inFlight.acquire(permits);
+            } catch (InterruptedException | CancellationException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                pool.shutdownNow();
+                CACHE.save();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* ---------------- similar images ---------------- */
+
+    /**
+     * Схожі зображення (категорія IMAGES): dHash кожного файлу рахується паралельно на пулі читачів
+     * (з кешем), далі групи будуються навколо зразка: зображення з найбільшою кількістю сусідів
+     * забирає з BK-дерева всі нерозподілені в радіусі maxDistance біт від себе. Ланцюжок A~B~C не зливає
+     * далекі зображення — кожен член групи схожий саме на її зразок. Вміст у групі різний, тож hash = null.
+     * Із критеріїв Options враховуються лише папки, фільтри і кількість читачів.
+     */
+    public static void findSimilarImages(Options opt, int maxDistance, ProgressMeter progress,
+            Consumer<Group> sink) {
+        CACHE.resetStats();
+        List<Entry> images = new ArrayList<>();
         for (Path root : opt.includes) {
             if (!Files.exists(root))
                 continue;
@@ -40,9 +236,10 @@ public class DuplicateFinderService {
                 Files.walkFileTree(root, new SimpleFileVisitor<>() {
                     @Override
                     public FileVisitResult visitFile(Path p, BasicFileAttributes a) {
-                        if (shouldSkip(p, a, opt))
-                            return FileVisitResult.CONTINUE;
-                        files.add(p);
+                        progress.add(1, 0);
+                        if (FileCategory.of(p.getFileName().toString()) == FileCategory.IMAGES
+                                && !shouldSkip(p, a, opt))
+                            images.add(new Entry(p, a.size(), a.lastModifiedTime().toMillis(), a.fileKey()));
                         return FileVisitResult.CONTINUE;
                     }
 
@@ -54,32 +251,303 @@ public class DuplicateFinderService {
             } catch (IOException ignored) {
             }
         }
+        List<Entry> unique = distinctFiles(images, sink);
 
-        /* 2. group */
-        Map<Key, List<Path>> map = new HashMap<>();
-        long done = 0, total = files.size();
+        CACHE.load();
+        long total = 0;
+        for (Entry e : unique)
+            total += e.size;
+        progress.addTotal(total);
+        ExecutorService pool = readerPool(opt.readers);
+        long[] hashes = new long[unique.size()];
+        boolean[] ok = new boolean[unique.size()];
+        try {
+            List<Future<?>> jobs = new ArrayList<>(unique.size());
+            for (int i = 0; i < unique.size(); i++) {
+                int id = i;
+                jobs.add(pool.submit(() -> {
+                    Entry e = unique.get(id);
+                    byte[] d = CACHE.full(DHASH, e.path, e.size, e.modified, e.fileKey);
+                    try {
+                        if (d == null) {
+                            d = ByteBuffer.allocate(Long.BYTES).putLong(PerceptualHash.dHash(e.path)).array();
+                            CACHE.putFull(DHASH, e.path, e.size, e.modified, e.fileKey, d);
+                        }
+                        hashes[id] = ByteBuffer.wrap(d).getLong();
+                        ok[id] = true;
+                    } catch (IOException | RuntimeException ignored) {
+                        // не зображення або пошкоджений файл
+                    }
+                    progress.add(0, e.size);
+                }));
+            }
+            for (Future<?> f : jobs)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            CACHE.save();
+        }
 
-        for (Path p : files) {
-            try {
-                BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class);
-                Key k = new Key(
-                        opt.matchName ? p.getFileName().toString().toLowerCase() : "",
-                        opt.matchSize ? a.size() : -1,
-                        opt.matchDate ? a.lastModifiedTime().toMillis() : -1,
-                        opt.matchContent ? fileHash(p) : "");
-                map.computeIfAbsent(k, __ -> new ArrayList<>()).add(p);
-            } catch (IOException ignored) {
+        BkTree tree = new BkTree();
+        for (int i = 0; i < hashes.length; i++)
+            if (ok[i])
+                tree.add(hashes[i], i);
+
+        /* зразками спершу стають «центральні» зображення — з найбільшою кількістю сусідів у радіусі */
+        int[] neighbours = new int[hashes.length];
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < hashes.length; i++) {
+            if (!ok[i])
+                continue;
+            int id = i;
+            tree.search(hashes[i], maxDistance, j -> neighbours[id]++);
+            order.add(i);
+        }
+        order.sort(Comparator.comparingInt((Integer i) -> -neighbours[i]).thenComparingInt(i -> i));
+
+        /* член групи ≤ maxDistance саме від зразка */
+        boolean[] taken = new boolean[hashes.length];
+        for (int i : order) {
+            if (taken[i])
+                continue;
+            taken[i] = true;
+            List<Entry> cluster = new ArrayList<>();
+            cluster.add(unique.get(i));
+            tree.search(hashes[i], maxDistance, j -> {
+                if (!taken[j]) {
+                    taken[j] = true;
+                    cluster.add(unique.get(j));
+                }
+            });
+            if (cluster.size() > 1)
+                sink.accept(toGroup(cluster, null));
+        }
+    }
+
+    /* ---------------- pipeline ---------------- */
+
+    /*
+     * Шляхи з однаковим fileKey (пристрій + inode) — один файл: хешується лише перший,
+     * а набір шляхів видається окремою групою linked. Перший несе кількість шляхів у links —
+     * його видалення не звільнить місця. Без fileKey кожен шлях — окремий файл.
+     */
+    private static List<Entry> distinctFiles(List<Entry> group, Consumer<Group> sink) {
+        Map<Object, List<Entry>> byKey = null;
+        List<Entry> unique = new ArrayList<>(group.size());
+        for (Entry e : group) {
+            if (e.fileKey == null) {
+                unique.add(e);
+                continue;
             }
-            progress.accept(++done, total);
+            if (byKey == null)
+                byKey = new HashMap<>();
+            List<Entry> same = byKey.computeIfAbsent(e.fileKey, __ -> new ArrayList<>(1));
+            if (same.isEmpty())
+                unique.add(e);
+            same.add(e);
+        }
+        if (byKey == null)
+            return unique;
+        for (List<Entry> same : byKey.values())
+            if (same.size() > 1)
+                sink.accept(linkedGroup(same));
+        for (int i = 0; i < unique.size(); i++) {
+            Entry e = unique.get(i);
+            int n = e.fileKey == null ? 1 : byKey.get(e.fileKey).size();
+            if (n > 1)
+                unique.set(i, new Entry(e.path, e.size, e.modified, e.fileKey, n));
+        }
+        return unique;
+    }
+
+    /*
+     * partial hash of head + tail, then full hash of what still collides, then optional byte check.
+     * Для нестійкого хешу повний хеш однаково довелося б звіряти побайтово — тоді після часткового
+     * одразу ByteVerifier: кожен файл читається двічі, а не тричі. Повний хеш лишається для стійкого
+     * хешу або коли кеш уже має повні дайджести всієї групи.
+     */
+    private static CompletableFuture<Void> confirm(List<Entry> group, Options opt, ProgressMeter progress,
+            ExecutorService pool, Consumer<Group> sink) {
+        return split(group, e -> partialHash(e, opt.hasher, progress), pool, progress, true)
+                .thenCompose(parts -> {
+                    List<CompletableFuture<Void>> next = new ArrayList<>();
+                    for (Map.Entry<Digest, List<Entry>> g : parts.entrySet()) {
+                        /* файли ≤ 2 * PARTIAL_BYTES вже прочитані повністю — частковий хеш є хешем вмісту */
+                        if (g.getValue().get(0).size <= 2L * PARTIAL_BYTES)
+                            next.add(finish(g.getValue(), g.getKey(), opt, progress, pool, sink));
+                        else if (!opt.hasher.collisionResistant() && !fullyCached(g.getValue(), opt.hasher))
+                            next.add(verify(g.getValue(), opt.hasher.name() + "-partial:"
+                                    + HexFormat.of().formatHex(g.getKey().h), progress, pool, sink, true));
+                        else
+                            next.add(split(g.getValue(), e -> fullHash(e, opt.hasher, progress), pool, progress, false)
+                                    .thenCompose(full -> CompletableFuture.allOf(full.entrySet().stream()
+                                            .map(f -> finish(f.getValue(), f.getKey(), opt, progress, pool, sink))
+                                            .toArray(CompletableFuture[]::new))));
+                    }
+                    return CompletableFuture.allOf(next.toArray(CompletableFuture[]::new));
+                });
+    }
+
+    /*
+     * Хешує файли групи на пулі і ділить її за дайджестом; одиночки і файли, що не прочиталися, відкидаються.
+     * Після часткового хешу повний для відкинутих уже не знадобиться — знімаємо його з прогресу.
+     */
+    private static CompletableFuture<Map<Digest, List<Entry>>> split(List<Entry> group, Function<Entry, byte[]> hash,
+            ExecutorService pool, ProgressMeter progress, boolean partial) {
+        List<CompletableFuture<byte[]>> hashes = new ArrayList<>(group.size());
+        for (Entry e : group)
+            hashes.add(CompletableFuture.supplyAsync(() -> hash.apply(e), pool));
+        return CompletableFuture.allOf(hashes.toArray(CompletableFuture[]::new)).thenApply(v -> {
+            Map<Digest, List<Entry>> byHash = new HashMap<>();
+            for (int i = 0; i < group.size(); i++) {
+                byte[] h = hashes.get(i).join();
+                if (h != null) // файл не прочитався — не може бути дублікатом
+                    byHash.computeIfAbsent(new Digest(h), __ -> new ArrayList<>()).add(group.get(i));
+                else if (partial && group.get(i).size > 2L * PARTIAL_BYTES)
+                    progress.addTotal(-group.get(i).size);
+            }
+            Map<Digest, List<Entry>> out = new HashMap<>();
+            for (Map.Entry<Digest, List<Entry>> e : byHash.entrySet()) {
+                List<Entry> l = e.getValue();
+                if (l.size() > 1)
+                    out.put(e.getKey(), l);
+                else if (partial && l.get(0).size > 2L * PARTIAL_BYTES)
+                    progress.addTotal(-l.get(0).size);
+            }
+            return out;
+        });
+    }
+
+    /* побайтове підтвердження (на вимогу або для нестійкого хешу) і видача */
+    private static CompletableFuture<Void> finish(List<Entry> g, Digest digest, Options opt,
+            ProgressMeter progress, ExecutorService pool, Consumer<Group> sink) {
+        String hash = opt.hasher.name() + ':' + HexFormat.of().formatHex(digest.h);
+        if (!opt.verifyBytes && opt.hasher.collisionResistant()) {
+            sink.accept(toGroup(g, hash));
+            return CompletableFuture.completedFuture(null);
+        }
+        return verify(g, hash, progress, pool, sink, false);
+    }
+
+    /* побайтова звірка групи; counted — її читання вже в оцінці прогресу (замість повного хешу) */
+    private static CompletableFuture<Void> verify(List<Entry> g, String hash, ProgressMeter progress,
+            ExecutorService pool, Consumer<Group> sink, boolean counted) {
+        long reserved = g.get(0).size * g.size();
+        if (!counted)
+            progress.addTotal(reserved);
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    long[] read = {0};
+                    List<List<Entry>> parts = ByteVerifier.split(g, Entry::path, k -> {
+                        read[0] += k;
+                        progress.add(0, k);
+                    });
+                    progress.addTotal(read[0] - reserved); // різні файли дочитувати не довелося
+                    return parts;
+                }, pool)
+                .thenAccept(parts -> parts.forEach(p -> sink.accept(toGroup(p, hash))));
+    }
+
+    private static Group toGroup(List<Entry> g, String hash) {
+        List<Path> files = new ArrayList<>(g.size());
+        long[] sizes = new long[g.size()];
+        int[] links = new int[g.size()];
+        for (int i = 0; i < g.size(); i++) {
+            files.add(g.get(i).path);
+            sizes[i] = g.get(i).size;
+            links[i] = g.get(i).links;
+        }
+        return new Group(files, sizes, links, hash, false);
+    }
+
+    private static Group linkedGroup(List<Entry> g) {
+        Group t = toGroup(g, null);
+        int[] links = new int[g.size()];
+        Arrays.fill(links, g.size());
+        return new Group(t.files, t.sizes, links, null, true);
+    }
+
+    private static ExecutorService readerPool(int readers) {
+        int n = readers > 0 ? readers : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, "DU-hash-" + UUID.randomUUID());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static long partialLength(long size) {
+        return Math.min(size, 2L * PARTIAL_BYTES);
+    }
+
+    public static HashCache cache() {
+        return CACHE;
+    }
+
+    private static byte[] partialHash(Entry e, ContentHasher hasher, ProgressMeter bp) {
+        byte[] d = CACHE.partial(hasher.name(), e.path, e.size, e.modified, e.fileKey);
+        if (d == null) {
+            d = headTailDigest(e, hasher, bp);
+            if (d != null)
+                CACHE.putPartial(hasher.name(), e.path, e.size, e.modified, e.fileKey, d);
+        } else {
+            bp.addTotal(-partialLength(e.size)); // з кешу — читати не довелося
         }
+        return d;
+    }
 
-        /* 3. return only groups with size > 1, sorted descending */
-        List<List<Path>> result = new ArrayList<>(map.values());
-        result.removeIf(l -> l.size() < 2);
-        result.sort((a, b) -> Integer.compare(b.size(), a.size()));
+    /* повні дайджести всієї групи вже в кеші — повний хеш нічого не читатиме */
+    private static boolean fullyCached(List<Entry> g, ContentHasher hasher) {
+        for (Entry e : g)
+            if (!CACHE.hasFull(hasher.name(), e.path, e.size, e.modified, e.fileKey))
+                return false;
+        return true;
+    }
 
-        progress.accept(total, total);
-        return result;
+    private static byte[] fullHash(Entry e, ContentHasher hasher, ProgressMeter bp) {
+        byte[] d = CACHE.full(hasher.name(), e.path, e.size, e.modified, e.fileKey);
+        if (d == null) {
+            d = fileHash(e.path, hasher, bp);
+            if (d != null)
+                CACHE.putFull(hasher.name(), e.path, e.size, e.modified, e.fileKey, d);
+        } else {
+            bp.addTotal(-e.size); // з кешу — читати не довелося
+        }
+        return d;
+    }
+
+    /* хеш від перших і останніх PARTIAL_BYTES байтів */
+    private static byte[] headTailDigest(Entry e, ContentHasher hasher, ProgressMeter bp) {
+        try (FileChannel ch = FileChannel.open(e.path, StandardOpenOption.READ)) {
+            ContentHasher.State st = hasher.start();
+            ByteBuffer buf = DIRECT.get();
+            long read = readFully(ch, buf, 0, PARTIAL_BYTES, st);
+            if (e.size > PARTIAL_BYTES)
+                read += readFully(ch, buf, Math.max(PARTIAL_BYTES, e.size - PARTIAL_BYTES), PARTIAL_BYTES, st);
+            bp.add(0, read);
+            return st.digest();
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static long readFully(FileChannel ch, ByteBuffer buf, long pos, int len, ContentHasher.State st)
+            throws IOException {
+        buf.clear().limit(len);
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos + buf.position());
+            if (n == -1)
+                break;
+        }
+        buf.flip();
+        int n = buf.remaining();
+        st.update(buf);
+        return n;
     }
 
     /* ---------------- helpers ---------------- */
@@ -103,26 +571,52 @@ public class DuplicateFinderService {
         return (sz < o.minBytes || sz > o.maxBytes);
     }
 
-    /* SHA‑256 без сторонніх бібліотек */
-    private static String fileHash(Path p) {
-        try (InputStream in = Files.newInputStream(p);
-                DigestInputStream dis = new DigestInputStream(in, MessageDigest.getInstance("SHA-256"))) {
+    private static byte[] fileHash(Path p, ContentHasher hasher, ProgressMeter bp) {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            ContentHasher.State st = hasher.start();
+            long size = ch.size();
+
+            if (MMAP_ALLOWED && size >= MMAP_THRESHOLD) {
+                for (long pos = 0; pos < size; pos += MMAP_WINDOW) {
+                    long len = Math.min(MMAP_WINDOW, size - pos);
+                    st.update(ch.map(FileChannel.MapMode.READ_ONLY, pos, len));
+                    bp.add(0, len);
+                }
+                return st.digest();
+            }
 
-            byte[] buf = new byte[8192];
-            while (dis.read(buf) != -1) {
-                /* digest оновлюється */ }
+            ByteBuffer buf = DIRECT.get();
+            buf.clear();
+            while (ch.read(buf) != -1) {
+                buf.flip();
+                bp.add(0, buf.remaining());
+                st.update(buf);
+                buf.clear();
+            }
+            return st.digest();
 
-            byte[] hash = dis.getMessageDigest().digest();
-            StringBuilder sb = new StringBuilder(hash.length * 2);
-            for (byte b : hash)
-                sb.append(String.format("%02x", b));
-            return sb.toString();
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
-        } catch (IOException | NoSuchAlgorithmException e) {
-            return UUID.randomUUID().toString(); // fallback
+    /* links — скільки шляхів до цього файлу знайдено (для представника набору жорстких посилань) */
+    record Entry(Path path, long size, long modified, Object fileKey, int links) {
+        Entry(Path path, long size, long modified, Object fileKey) {
+            this(path, size, modified, fileKey, 1);
         }
     }
 
-    private record Key(String n, long s, long d, String h) {
+    /* ключ групування за дайджестом; byte[] порівнюється за вмістом */
+    private record Digest(byte[] h) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Digest k && Arrays.equals(k.h, h);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(h);
+        }
     }
 }
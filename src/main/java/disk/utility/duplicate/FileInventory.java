@@ -0,0 +1,175 @@
+package disk.utility.duplicate;
+
+import disk.utility.analysis.FileCategory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Компактний перелік файлів для великих сканувань: атрибути — в примітивних масивах
+ * за номером файлу, імена — UTF-8 у спільній арені блоками, шлях — індекс батьківського каталогу.
+ * Path відновлюється лише на запит (для кандидатів у дублікати).
+ * Приблизно 50 байтів на файл плюс ім'я замість кількох сотень для Path + запису.
+ * Заповнюється з одного потоку.
+ */
+public final class FileInventory {
+
+    private static final int CHUNK_BITS = 20; // блок арени — 1 МБ
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final long NO_KEY = Long.MIN_VALUE;
+
+    /* каталоги */
+    private int dirs;
+    private int[] dirParent = new int[1024];
+    private long[] dirName = new long[1024];
+
+    /* файли */
+    private int files;
+    private long[] sizes = new long[1 << 14];
+    private long[] modified = new long[1 << 14];
+    private byte[] category = new byte[1 << 14];
+    private int[] parent = new int[1 << 14];
+    private long[] name = new long[1 << 14];
+    private long[] dev = new long[1 << 14];
+    private long[] ino = new long[1 << 14];
+    private final Map<Integer, String> otherKeys = new HashMap<>();
+
+    /* арена імен: посилання = (блок << CHUNK_BITS | зсув) << 16 | довжина */
+    private byte[][] chunks = new byte[4][];
+    private int chunkCount;
+    private int chunkPos = CHUNK;
+
+    /* ---------------- filling ---------------- */
+
+    /** parent = -1 для кореня; тоді name — повний шлях */
+    public int addDirectory(int parent, String name) {
+        if (dirs == dirParent.length) {
+            dirParent = Arrays.copyOf(dirParent, dirs * 2);
+            dirName = Arrays.copyOf(dirName, dirs * 2);
+        }
+        dirParent[dirs] = parent;
+        dirName[dirs] = intern(name);
+        return dirs++;
+    }
+
+    public int add(int dir, String fileName, BasicFileAttributes a) {
+        if (files == sizes.length)
+            grow();
+        int i = files++;
+        sizes[i] = a.size();
+        modified[i] = a.lastModifiedTime().toMillis();
+        category[i] = (byte) FileCategory.of(fileName).ordinal();
+        parent[i] = dir;
+        name[i] = intern(fileName);
+        packKey(i, a.fileKey());
+        return i;
+    }
+
+    private void grow() {
+        int n = files * 2;
+        sizes = Arrays.copyOf(sizes, n);
+        modified = Arrays.copyOf(modified, n);
+        category = Arrays.copyOf(category, n);
+        parent = Arrays.copyOf(parent, n);
+        name = Arrays.copyOf(name, n);
+        dev = Arrays.copyOf(dev, n);
+        ino = Arrays.copyOf(ino, n);
+    }
+
+    private long intern(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        if (b.length > 0xFFFF)
+            throw new IllegalArgumentException("Name too long: " + s);
+        if (chunkPos + b.length > CHUNK) {
+            if (chunkCount == chunks.length)
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            chunks[chunkCount++] = new byte[CHUNK];
+            chunkPos = 0;
+        }
+        byte[] c = chunks[chunkCount - 1];
+        System.arraycopy(b, 0, c, chunkPos, b.length);
+        long ref = ((long) (chunkCount - 1) << CHUNK_BITS | chunkPos) << 16 | b.length;
+        chunkPos += b.length;
+        return ref;
+    }
+
+    private String string(long ref) {
+        int len = (int) (ref & 0xFFFF);
+        long at = ref >>> 16;
+        return new String(chunks[(int) (at >>> CHUNK_BITS)], (int) (at & (CHUNK - 1)), len,
+                StandardCharsets.UTF_8);
+    }
+
+    /*
+     * fileKey на Unix — (dev=<hex>,ino=<dec>): зберігаємо два long і відтворюємо рядок,
+     * що збігається з toString() ключа (так його зберігає HashCache). Інші формати — в окремій мапі.
+     */
+    private void packKey(int i, Object key) {
+        dev[i] = NO_KEY;
+        if (key == null)
+            return;
+        String s = key.toString();
+        if (s.startsWith("(dev=") && s.endsWith(")")) {
+            int comma = s.indexOf(",ino=");
+            try {
+                long d = Long.parseUnsignedLong(s.substring(5, comma), 16);
+                long n = Long.parseLong(s.substring(comma + 5, s.length() - 1));
+                if (d != NO_KEY) {
+                    dev[i] = d;
+                    ino[i] = n;
+                    return;
+                }
+            } catch (RuntimeException ignored) {
+            }
+        }
+        otherKeys.put(i, s);
+    }
+
+    /* ---------------- access ---------------- */
+
+    public int size() {
+        return files;
+    }
+
+    /** Оцінка зайнятої пам'яті в байтах (ємність масивів і арени) */
+    public long footprint() {
+        return (long) sizes.length * 45 + (long) dirParent.length * 12 + (long) chunkCount * CHUNK;
+    }
+
+    public long size(int i) {
+        return sizes[i];
+    }
+
+    public long modified(int i) {
+        return modified[i];
+    }
+
+    public FileCategory category(int i) {
+        return FileCategory.values()[category[i]];
+    }
+
+    public String name(int i) {
+        return string(name[i]);
+    }
+
+    /** Рядок fileKey або null, якщо файлова система його не надає */
+    public String fileKey(int i) {
+        if (dev[i] != NO_KEY)
+            return "(dev=" + Long.toHexString(dev[i]) + ",ino=" + ino[i] + ')';
+        return otherKeys.get(i);
+    }
+
+    public Path path(int i) {
+        return directory(parent[i]).resolve(name(i));
+    }
+
+    public Path directory(int d) {
+        if (dirParent[d] < 0)
+            return Path.of(string(dirName[d]));
+        return directory(dirParent[d]).resolve(string(dirName[d]));
+    }
+}
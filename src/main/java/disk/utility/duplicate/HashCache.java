@@ -0,0 +1,211 @@
+package disk.utility.duplicate;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Дисковий кеш хешів: digest файлу перевикористовується, поки збігаються
+ * розмір, час модифікації і fileKey. Формат — компактний бінарний файл,
+ * записи зберігаються в LRU-порядку, найстаріші витісняються при переповненні.
+ */
+public final class HashCache {
+
+    private static final int MAGIC = 0x44554843; // "DUHC"
+    private static final int VERSION = 2;
+    private static final int MAX_PATH_CHARS = 65535 / 3;
+    public static final int DEFAULT_MAX_ENTRIES = 500_000;
+
+    private final Path file;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Record> map;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private boolean loaded, dirty;
+
+    public HashCache(Path file, int maxEntries) {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Record> eldest) {
+                return size() > HashCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static Path defaultFile() {
+        return Path.of(System.getProperty("user.home"), ".disk-utility", "hash-cache.bin");
+    }
+
+    /* ---------------- lookup ---------------- */
+
+    public synchronized byte[] partial(String algo, Path p, long size, long modified, Object fileKey) {
+        Record r = lookup(algo, p, size, modified, fileKey);
+        return count(r == null ? null : r.partial);
+    }
+
+    public synchronized byte[] full(String algo, Path p, long size, long modified, Object fileKey) {
+        Record r = lookup(algo, p, size, modified, fileKey);
+        return count(r == null ? null : r.full);
+    }
+
+    /* чи є повний дайджест — без обліку в статистиці влучань */
+    public synchronized boolean hasFull(String algo, Path p, long size, long modified, Object fileKey) {
+        Record r = lookup(algo, p, size, modified, fileKey);
+        return r != null && r.full != null;
+    }
+
+    public synchronized void putPartial(String algo, Path p, long size, long modified, Object fileKey,
+            byte[] digest) {
+        record(algo, p, size, modified, fileKey).partial = digest;
+        dirty = true;
+    }
+
+    public synchronized void putFull(String algo, Path p, long size, long modified, Object fileKey,
+            byte[] digest) {
+        record(algo, p, size, modified, fileKey).full = digest;
+        dirty = true;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public void resetStats() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    private byte[] count(byte[] digest) {
+        (digest == null ? misses : hits).incrementAndGet();
+        return digest;
+    }
+
+    private Record lookup(String algo, Path p, long size, long modified, Object fileKey) {
+        Record r = map.get(key(algo, p));
+        if (r == null || r.size != size || r.modified != modified || !r.fileKey.equals(keyOf(fileKey)))
+            return null;
+        return r;
+    }
+
+    private Record record(String algo, Path p, long size, long modified, Object fileKey) {
+        Record r = lookup(algo, p, size, modified, fileKey);
+        if (r == null) {
+            r = new Record(size, modified, keyOf(fileKey));
+            map.put(key(algo, p), r);
+        }
+        return r;
+    }
+
+    /* дайджести різних алгоритмів не змішуються */
+    private static String key(String algo, Path p) {
+        return algo + '|' + p;
+    }
+
+    private static String keyOf(Object fileKey) {
+        return Objects.toString(fileKey, "");
+    }
+
+    /* ---------------- persistence ---------------- */
+
+    public synchronized void load() {
+        if (loaded)
+            return;
+        loaded = true;
+        if (!Files.isRegularFile(file))
+            return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                return;
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String path = in.readUTF();
+                Record r = new Record(in.readLong(), in.readLong(), in.readUTF());
+                r.partial = readDigest(in);
+                r.full = readDigest(in);
+                map.put(path, r);
+            }
+        } catch (IOException e) {
+            map.clear(); // пошкоджений кеш — починаємо з нуля
+        }
+    }
+
+    public synchronized void save() {
+        if (!dirty)
+            return;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt((int) map.keySet().stream().filter(HashCache::storable).count());
+                /* від найстарішого до найновішого — LRU-порядок відновиться при load */
+                for (Map.Entry<String, Record> e : map.entrySet()) {
+                    if (!storable(e.getKey()))
+                        continue;
+                    Record r = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeLong(r.size);
+                    out.writeLong(r.modified);
+                    out.writeUTF(r.fileKey);
+                    writeDigest(out, r.partial);
+                    writeDigest(out, r.full);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /* writeUTF обмежений 65535 байтами */
+    private static boolean storable(String path) {
+        return path.length() <= MAX_PATH_CHARS;
+    }
+
+    private static byte[] readDigest(DataInput in) throws IOException {
+        int len = in.readUnsignedByte();
+        if (len == 0)
+            return null;
+        byte[] d = new byte[len];
+        in.readFully(d);
+        return d;
+    }
+
+    private static void writeDigest(DataOutput out, byte[] d) throws IOException {
+        if (d == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(d.length);
+        out.write(d);
+    }
+
+    private static final class Record {
+        final long size;
+        final long modified;
+        final String fileKey;
+        byte[] partial;
+        byte[] full;
+
+        Record(long size, long modified, String fileKey) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+        }
+    }
+}
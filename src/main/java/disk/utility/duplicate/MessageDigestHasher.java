@@ -0,0 +1,57 @@
+package disk.utility.duplicate;
+
+import java.nio.ByteBuffer;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/* Обгортка над java.security.MessageDigest (SHA-256 тощо) */
+final class MessageDigestHasher implements ContentHasher {
+
+    private final String algorithm;
+
+    MessageDigestHasher(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    @Override
+    public String name() {
+        return algorithm;
+    }
+
+    @Override
+    public boolean collisionResistant() {
+        return true;
+    }
+
+    @Override
+    public State start() {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return new State() {
+            @Override
+            public void update(byte[] b, int off, int len) {
+                md.update(b, off, len);
+            }
+
+            @Override
+            public void update(ByteBuffer buf) {
+                md.update(buf);
+            }
+
+            @Override
+            public byte[] digest() {
+                return md.digest();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return algorithm;
+    }
+}
@@ -0,0 +1,84 @@
+package disk.utility.duplicate;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * dHash зображення: 64 біти — чи світліший кожен піксель за правого сусіда на сітці 9×8 відтінків сірого.
+ * Стійкий до зміни розміру і перекодування; схожість — відстань Геммінга між хешами.
+ * Зображення декодується з проріджуванням (subsampling) одразу до мініатюри, тож повна картинка
+ * в пам'ять не потрапляє.
+ */
+final class PerceptualHash {
+
+    /* мініатюра не менша за THUMB пікселів по короткій стороні — цього досить для сітки 9×8 */
+    private static final int THUMB = 64;
+    private static final int W = 9, H = 8;
+
+    static {
+        ImageIO.setUseCache(false); // без тимчасових файлів на кожне зображення
+    }
+
+    private PerceptualHash() {
+    }
+
+    static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    static long dHash(Path file) throws IOException {
+        BufferedImage img = thumbnail(file);
+        int w = img.getWidth(), h = img.getHeight();
+        int[] rgb = img.getRGB(0, 0, w, h, null, 0, w);
+
+        /* середня яскравість кожної клітинки сітки W×H */
+        double[] cell = new double[W * H];
+        int[] count = new int[W * H];
+        for (int y = 0; y < h; y++) {
+            int cy = y * H / h;
+            for (int x = 0; x < w; x++) {
+                int p = rgb[y * w + x];
+                int c = cy * W + x * W / w;
+                cell[c] += 0.299 * (p >> 16 & 0xFF) + 0.587 * (p >> 8 & 0xFF) + 0.114 * (p & 0xFF);
+                count[c]++;
+            }
+        }
+        for (int i = 0; i < cell.length; i++)
+            cell[i] /= Math.max(1, count[i]);
+
+        long hash = 0;
+        for (int y = 0; y < H; y++)
+            for (int x = 0; x < W - 1; x++)
+                hash = hash << 1 | (cell[y * W + x] > cell[y * W + x + 1] ? 1 : 0);
+        return hash;
+    }
+
+    private static BufferedImage thumbnail(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null)
+                throw new IOException("Cannot open " + file);
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext())
+                throw new IOException("Unsupported image: " + file);
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int step = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / THUMB);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage img = reader.read(0, param);
+                if (img.getWidth() < 1 || img.getHeight() < 1)
+                    throw new IOException("Empty image: " + file);
+                return img;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
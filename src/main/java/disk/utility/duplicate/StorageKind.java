@@ -0,0 +1,50 @@
+package disk.utility.duplicate;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+
+/**
+ * Тип накопичувача, від якого залежить кількість паралельних читачів:
+ * SSD витримує багато одночасних запитів, HDD від цього лише «смикає» головку.
+ */
+public enum StorageKind {
+    AUTO,
+    SSD,
+    HDD;
+
+    /** Значення з налаштувань; застаріле чи зіпсоване (напр. після перейменування) — AUTO, а не виняток */
+    public static StorageKind parse(String name) {
+        for (StorageKind k : values())
+            if (k.name().equals(name))
+                return k;
+        return AUTO;
+    }
+
+    /** true, якщо хоч один з коренів лежить на шпиндельному диску */
+    public static boolean anyRotational(List<Path> roots) {
+        for (Path r : roots)
+            if (detect(r) == HDD)
+                return true;
+        return false;
+    }
+
+    /** Linux: /sys/block/&lt;dev&gt;/queue/rotational; на інших ОС — SSD */
+    public static StorageKind detect(Path p) {
+        try {
+            String name = Files.getFileStore(p).name(); // напр. /dev/sda1
+            if (!name.startsWith("/dev/"))
+                return SSD;
+            String dev = name.substring(5);
+            Path sys = Path.of("/sys/class/block", dev);
+            if (!Files.exists(sys))
+                return SSD;
+            Path queue = sys.resolve("queue/rotational");
+            if (!Files.exists(queue)) // розділ — дивимось на батьківський пристрій
+                queue = sys.toRealPath().getParent().resolve("queue/rotational");
+            return Files.readString(queue).trim().equals("1") ? HDD : SSD;
+        } catch (IOException | RuntimeException e) {
+            return SSD;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package disk.utility.duplicate;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Чиста Java-реалізація XXH64 (seed = 0) у потоковому режимі.
+ * Дайджест — 8 байтів big-endian.
+ */
+final class XxHash64 implements ContentHasher {
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public String name() {
+        return "XXH64";
+    }
+
+    @Override
+    public boolean collisionResistant() {
+        return false;
+    }
+
+    @Override
+    public State start() {
+        return new Xxh64State();
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long mergeRound(long acc, long val) {
+        acc ^= round(0, val);
+        return acc * P1 + P4;
+    }
+
+    private static final class Xxh64State implements State {
+        private long v1 = P1 + P2, v2 = P2, v3 = 0, v4 = -P1;
+        private long totalLen;
+        private final byte[] mem = new byte[32];
+        private int memSize;
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            totalLen += len;
+
+            if (memSize + len < 32) {
+                System.arraycopy(b, off, mem, memSize, len);
+                memSize += len;
+                return;
+            }
+
+            int end = off + len;
+            if (memSize > 0) {
+                int fill = 32 - memSize;
+                System.arraycopy(b, off, mem, memSize, fill);
+                stripe(mem, 0);
+                off += fill;
+                memSize = 0;
+            }
+
+            for (; off + 32 <= end; off += 32)
+                stripe(b, off);
+
+            if (off < end) {
+                memSize = end - off;
+                System.arraycopy(b, off, mem, 0, memSize);
+            }
+        }
+
+        @Override
+        public void update(ByteBuffer buf) {
+            int len = buf.remaining();
+            totalLen += len;
+
+            if (memSize + len < 32) {
+                buf.get(mem, memSize, len);
+                memSize += len;
+                return;
+            }
+
+            if (memSize > 0) {
+                int fill = 32 - memSize;
+                buf.get(mem, memSize, fill);
+                stripe(mem, 0);
+                memSize = 0;
+            }
+
+            ByteBuffer le = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            int off = le.position(), end = le.limit();
+            for (; off + 32 <= end; off += 32) {
+                v1 = round(v1, le.getLong(off));
+                v2 = round(v2, le.getLong(off + 8));
+                v3 = round(v3, le.getLong(off + 16));
+                v4 = round(v4, le.getLong(off + 24));
+            }
+
+            memSize = end - off;
+            buf.position(off);
+            buf.get(mem, 0, memSize);
+        }
+
+        private void stripe(byte[] b, int off) {
+            v1 = round(v1, (long) LONG_LE.get(b, off));
+            v2 = round(v2, (long) LONG_LE.get(b, off + 8));
+            v3 = round(v3, (long) LONG_LE.get(b, off + 16));
+            v4 = round(v4, (long) LONG_LE.get(b, off + 24));
+        }
+
+        @Override
+        public byte[] digest() {
+            long h;
+            if (totalLen >= 32) {
+                h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                        + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                h = mergeRound(h, v1);
+                h = mergeRound(h, v2);
+                h = mergeRound(h, v3);
+                h = mergeRound(h, v4);
+            } else {
+                h = v3 + P5;
+            }
+            h += totalLen;
+
+            int i = 0;
+            for (; i + 8 <= memSize; i += 8) {
+                h ^= round(0, (long) LONG_LE.get(mem, i));
+                h = Long.rotateLeft(h, 27) * P1 + P4;
+            }
+            if (i + 4 <= memSize) {
+                h ^= ((int) INT_LE.get(mem, i) & 0xFFFFFFFFL) * P1;
+                h = Long.rotateLeft(h, 23) * P2 + P3;
+                i += 4;
+            }
+            for (; i < memSize; i++) {
+                h ^= (mem[i] & 0xFFL) * P5;
+                h = Long.rotateLeft(h, 11) * P1;
+            }
+
+            h ^= h >>> 33;
+            h *= P2;
+            h ^= h >>> 29;
+            h *= P3;
+            h ^= h >>> 32;
+
+            byte[] out = new byte[8];
+            for (int k = 7; k >= 0; k--) {
+                out[k] = (byte) h;
+                h >>>= 8;
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package disk.utility.ui.components;
+
+import disk.utility.duplicate.DuplicateFinderService.Group;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.ObservableList;
+import javafx.scene.control.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Віртуалізований список груп дублікатів. Вузли сцени створюються лише для видимих рядків,
+ * рядки файлів — лише для розгорнутих груп. Кожен файл має номер; вибір і видалені файли —
+ * у BitSet, а кількість і обсяг вибраного перераховуються за O(1) на кожен клік.
+ */
+public class DuplicateResultsView extends TreeTableView<DuplicateResultsView.Row> {
+
+    /** Рядок таблиці: заголовок групи (index = -1) або файл групи */
+    public static final class Row {
+        private final GroupRow group;
+        private final int index;
+
+        private Row(GroupRow group, int index) {
+            this.group = group;
+            this.index = index;
+        }
+    }
+
+    private static final class GroupRow {
+        final int gid;
+        final Group group;
+        final int base; // номер першого файлу
+        final long reclaimable;
+        int alive;
+        GroupItem item;
+
+        GroupRow(int gid, Group group, int base) {
+            this.gid = gid;
+            this.group = group;
+            this.base = base;
+            this.reclaimable = group.reclaimable();
+            this.alive = group.files().size();
+        }
+    }
+
+    /* файли створюються при першому розгортанні групи */
+    private final class GroupItem extends TreeItem<Row> {
+        private boolean loaded;
+
+        GroupItem(GroupRow g) {
+            super(new Row(g, -1));
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return false;
+        }
+
+        @Override
+        public ObservableList<TreeItem<Row>> getChildren() {
+            if (!loaded) {
+                loaded = true;
+                GroupRow g = getValue().group;
+                List<TreeItem<Row>> files = new ArrayList<>(g.alive);
+                for (int i = 0; i < g.group.files().size(); i++)
+                    if (!removed.get(g.base + i))
+                        files.add(new TreeItem<>(new Row(g, i)));
+                super.getChildren().setAll(files);
+            }
+            return super.getChildren();
+        }
+    }
+
+    private final TreeItem<Row> root = new TreeItem<>();
+    private final List<GroupRow> owners = new ArrayList<>(); // за порядком надходження
+    private int[] ownerOf = new int[1024]; // номер файлу → індекс у owners
+    private int nextId;
+
+    private final BitSet selected = new BitSet();
+    private final BitSet removed = new BitSet();
+    private final ReadOnlyIntegerWrapper selectedCount = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyLongWrapper selectedBytes = new ReadOnlyLongWrapper();
+
+    /**
+     * linkedWord — позначка груп жорстких посилань (у них файли не вибираються)
+     * і файлів, що мають інші посилання.
+     */
+    public DuplicateResultsView(String fileColumn, String sizeColumn, String filesWord, String linkedWord) {
+        super();
+        setRoot(root);
+        setShowRoot(false);
+        setColumnResizePolicy(CONSTRAINED_RESIZE_POLICY);
+
+        TreeTableColumn<Row, Row> check = new TreeTableColumn<>();
+        check.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().getValue()));
+        check.setCellFactory(c -> new CheckCell());
+        check.setMinWidth(32);
+        check.setMaxWidth(32);
+        check.setSortable(false);
+
+        TreeTableColumn<Row, String> name = new TreeTableColumn<>(fileColumn);
+        name.setCellValueFactory(c -> {
+            Row r = c.getValue().getValue();
+            GroupRow g = r.group;
+            if (r.index >= 0) {
+                int links = g.group.links()[r.index];
+                return new SimpleStringProperty(g.group.files().get(r.index)
+                        + (links > 1 && !g.group.linked() ? " (" + linkedWord + ": " + links + ")" : ""));
+            }
+            return new SimpleStringProperty("#" + g.gid + " - " + g.alive + " " + filesWord
+                    + (g.group.linked() ? " (" + linkedWord + ")" : ""));
+        });
+        name.setSortable(false);
+
+        TreeTableColumn<Row, String> size = new TreeTableColumn<>(sizeColumn);
+        size.setCellValueFactory(c -> {
+            Row r = c.getValue().getValue();
+            return new SimpleStringProperty(human(r.index < 0 ? r.group.reclaimable : r.group.group.sizes()[r.index]));
+        });
+        size.setMinWidth(90);
+        size.setMaxWidth(120);
+        size.setSortable(false);
+
+        getColumns().add(check);
+        getColumns().add(name);
+        getColumns().add(size);
+    }
+
+    private final class CheckCell extends TreeTableCell<Row, Row> {
+        private final CheckBox box = new CheckBox();
+
+        CheckCell() {
+            box.setOnAction(e -> {
+                Row r = getItem();
+                if (r != null && r.index >= 0)
+                    select(r.group.base + r.index, box.isSelected());
+            });
+        }
+
+        @Override
+        protected void updateItem(Row r, boolean empty) {
+            super.updateItem(r, empty);
+            if (empty || r == null || r.index < 0 || r.group.group.linked()) {
+                setGraphic(null);
+            } else {
+                box.setSelected(selected.get(r.group.base + r.index));
+                setGraphic(box);
+            }
+        }
+    }
+
+    /* ---------------- model ---------------- */
+
+    /**
+     * Додає пакет груп, зберігаючи порядок за місцем, яке можна звільнити:
+     * пакет сортується і зливається з наявним списком за один прохід.
+     */
+    public void add(List<Group> batch) {
+        List<TreeItem<Row>> fresh = new ArrayList<>(batch.size());
+        for (Group group : batch) {
+            int n = group.files().size();
+            if (nextId + n > ownerOf.length)
+                ownerOf = Arrays.copyOf(ownerOf, Math.max(ownerOf.length * 2, nextId + n));
+            GroupRow g = new GroupRow(owners.size() + 1, group, nextId);
+            Arrays.fill(ownerOf, nextId, nextId + n, owners.size());
+            owners.add(g);
+            nextId += n;
+            g.item = new GroupItem(g);
+            fresh.add(g.item);
+        }
+        fresh.sort(Comparator.comparingLong((TreeItem<Row> t) -> t.getValue().group.reclaimable).reversed());
+
+        ObservableList<TreeItem<Row>> items = root.getChildren();
+        if (items.isEmpty() || reclaimable(items.get(items.size() - 1)) >= reclaimable(fresh.get(0))) {
+            items.addAll(fresh);
+            return;
+        }
+        List<TreeItem<Row>> merged = new ArrayList<>(items.size() + fresh.size());
+        int i = 0, j = 0;
+        while (i < items.size() || j < fresh.size()) {
+            if (j >= fresh.size() || (i < items.size() && reclaimable(items.get(i)) >= reclaimable(fresh.get(j))))
+                merged.add(items.get(i++));
+            else
+                merged.add(fresh.get(j++));
+        }
+        items.setAll(merged);
+    }
+
+    private static long reclaimable(TreeItem<Row> t) {
+        return t.getValue().group.reclaimable;
+    }
+
+    public void clear() {
+        root.getChildren().clear();
+        owners.clear();
+        nextId = 0;
+        selected.clear();
+        removed.clear();
+        selectedCount.set(0);
+        selectedBytes.set(0);
+    }
+
+    public int groupCount() {
+        return root.getChildren().size();
+    }
+
+    private void select(int id, boolean on) {
+        if (removed.get(id) || selected.get(id) == on)
+            return;
+        selected.set(id, on);
+        long sz = freed(id);
+        selectedCount.set(selectedCount.get() + (on ? 1 : -1));
+        selectedBytes.set(selectedBytes.get() + (on ? sz : -sz));
+    }
+
+    public ReadOnlyIntegerProperty selectedCountProperty() {
+        return selectedCount.getReadOnlyProperty();
+    }
+
+    public ReadOnlyLongProperty selectedBytesProperty() {
+        return selectedBytes.getReadOnlyProperty();
+    }
+
+    public int[] selectedIds() {
+        return selected.stream().toArray();
+    }
+
+    public Path path(int id) {
+        GroupRow g = owners.get(ownerOf[id]);
+        return g.group.files().get(id - g.base);
+    }
+
+    public long sizeOf(int id) {
+        GroupRow g = owners.get(ownerOf[id]);
+        return g.group.sizes()[id - g.base];
+    }
+
+    /** Скільки звільнить видалення файлу: 0, якщо на нього є інші жорсткі посилання */
+    public long freed(int id) {
+        GroupRow g = owners.get(ownerOf[id]);
+        return g.group.freed(id - g.base);
+    }
+
+    /** "алгоритм:hex" вмісту групи файлу або null */
+    public String hash(int id) {
+        return owners.get(ownerOf[id]).group.hash();
+    }
+
+    /** Копія, що лишається в групі: перший невибраний файл, а якщо вибрано всі — перший наявний */
+    public Path keeper(int id) {
+        GroupRow g = owners.get(ownerOf[id]);
+        int first = -1;
+        for (int i = 0; i < g.group.files().size(); i++) {
+            if (removed.get(g.base + i))
+                continue;
+            if (!selected.get(g.base + i))
+                return g.group.files().get(i);
+            if (first < 0)
+                first = i;
+        }
+        return first < 0 ? null : g.group.files().get(first);
+    }
+
+    /**
+     * Прибирає файли (після видалення); група, де лишився один файл, зникає.
+     * Вибір з її решти знімається — інакше наступне видалення забрало б невидиму останню копію.
+     */
+    public void remove(int[] ids) {
+        Set<TreeItem<Row>> gone = new HashSet<>();
+        for (int id : ids) {
+            if (removed.get(id))
+                continue;
+            select(id, false);
+            removed.set(id);
+            GroupRow g = owners.get(ownerOf[id]);
+            g.alive--;
+            if (g.item.loaded)
+                g.item.getChildren().removeIf(t -> t.getValue().group == g && t.getValue().index == id - g.base);
+            if (g.alive < 2 && gone.add(g.item))
+                for (int i = 0; i < g.group.files().size(); i++)
+                    select(g.base + i, false);
+        }
+        if (!gone.isEmpty())
+            root.getChildren().removeIf(gone::contains);
+        refresh();
+    }
+
+    private static String human(long b) {
+        String[] u = { "B", "KB", "MB", "GB", "TB" };
+        int i = 0;
+        double v = b;
+        while (v >= 1024 && i < u.length - 1) {
+            v /= 1024;
+            i++;
+        }
+        return String.format("%.1f %s", v, u[i]);
+    }
+}
@@ -4,6 +4,7 @@
 package disk.utility.ui.tabs;
 
 import disk.utility.AppContext;
+import disk.utility.ProgressMeter;
 import disk.utility.analysis.*;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
@@ -18,6 +19,7 @@ import javafx.scene.layout.*;
 import javafx.util.StringConverter;
 import javafx.util.converter.DoubleStringConverter;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -51,11 +53,14 @@ public class DiskAnalysisTab extends Tab {
 
     private final ResourceBundle bundle;
 
-    private final Map<FileCategory, CheckBox> catChecks = Arrays.stream(FileCategory.values())
-            .collect(Collectors.toMap(c -> c, c -> new CheckBox(c.label)));
+    private final CategoryProfile profile = CategoryProfile.active();
+    private final Map<Category, CheckBox> catChecks = profile.categories().stream()
+            .collect(Collectors.toMap(c -> c, c -> new CheckBox(c.label()), (a, b) -> a, LinkedHashMap::new));
     private final Map<Path, CheckBox> driveChecks = new LinkedHashMap<>();
 
     private final ObservableList<Row> rows = FXCollections.observableArrayList();
+    private final ObservableList<SpaceReport.FileEntry> largest = FXCollections.observableArrayList();
+    private final TreeTableView<SpaceReport.DirNode> dirTree = new TreeTableView<>();
     private final PieChart pie = new PieChart();
     private final ProgressBar bar = new ProgressBar(0);
     private final Label status = new Label();
@@ -68,6 +73,17 @@ public class DiskAnalysisTab extends Tab {
     private final DatePicker endDatePicker = new DatePicker();
     private final CheckBox useFiltersCheckBox = new CheckBox();
     private final ComboBox<SizeUnit> sizeUnitCombo = new ComboBox<>();
+    private final ComboBox<DiskAnalyzer.ScanMode> scanModeCombo = new ComboBox<>();
+    private final CheckBox incrementalCheckBox = new CheckBox();
+    private final CheckBox liveCheckBox = new CheckBox();
+    private final Map<Category, PieChart.Data> slices = new HashMap<>();
+    private AnalysisWatcher watcher;
+
+    private static final int MAX_WATCH_KEYS = 4096;
+    private static final long WATCH_INTERVAL_MS = 500;
+    private static final int TOP_FILES = 100;
+    private static final int TREE_DEPTH = 4;
+    private static final int TREE_NODES = 20_000;
 
     public DiskAnalysisTab(ResourceBundle bundle) {
         super(bundle.getString("tab.analysis"));
@@ -95,6 +111,16 @@ public class DiskAnalysisTab extends Tab {
     private void buildUi() {
         sizeUnitCombo.getItems().addAll(SizeUnit.values());
         sizeUnitCombo.setValue(SizeUnit.MB);
+        scanModeCombo.getItems().addAll(DiskAnalyzer.ScanMode.values());
+        scanModeCombo.setValue(DiskAnalyzer.ScanMode.PARALLEL);
+        /* за mtime каталогу не видно зміни файлу на місці — лише на вимогу, за замовчуванням повний підрахунок */
+        incrementalCheckBox.setText(bundle.getString("checkbox.incremental"));
+        incrementalCheckBox.setSelected(false);
+        liveCheckBox.setText(bundle.getString("checkbox.live"));
+        liveCheckBox.selectedProperty().addListener((obs, o, on) -> {
+            if (!on)
+                stopWatcher();
+        });
 
         useFiltersCheckBox.setText(bundle.getString("checkbox.use_filters"));
         useFiltersCheckBox.setSelected(true);
@@ -138,14 +164,26 @@ public class DiskAnalysisTab extends Tab {
         pie.setLabelsVisible(true);
         pie.setMinSize(300, 300);
 
-        VBox resultBox = new VBox(table, pie);
-        VBox.setVgrow(pie, Priority.ALWAYS);
+        TabPane report = new TabPane(
+                new Tab(bundle.getString("label.largest_files"), buildLargestTable()),
+                new Tab(bundle.getString("label.directories"), buildDirTree()));
+        report.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
+        SplitPane charts = new SplitPane(pie, report);
+        charts.setDividerPositions(0.5);
+
+        VBox resultBox = new VBox(table, charts);
+        VBox.setVgrow(charts, Priority.ALWAYS);
 
         VBox left = new VBox(10,
                 titled(bundle.getString("label.categories"), catBox),
                 titled(bundle.getString("label.drives"), drvBox),
                 titled(bundle.getString("label.filters"), filterBox),
-                useFiltersCheckBox, analyze, bar, status);
+                useFiltersCheckBox,
+                new HBox(4, new Label(bundle.getString("label.scan_mode")), scanModeCombo),
+                incrementalCheckBox,
+                liveCheckBox,
+                analyze, bar, status);
         left.setPadding(new Insets(10));
 
         SplitPane split = new SplitPane(left, resultBox);
@@ -167,15 +205,71 @@ public class DiskAnalysisTab extends Tab {
         return tv;
     }
 
+    private TableView<SpaceReport.FileEntry> buildLargestTable() {
+        TableView<SpaceReport.FileEntry> tv = new TableView<>(largest);
+        tv.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        TableColumn<SpaceReport.FileEntry, String> c1 = new TableColumn<>(bundle.getString("table.path"));
+        c1.setCellValueFactory(r -> new SimpleStringProperty(r.getValue().path().toString()));
+
+        TableColumn<SpaceReport.FileEntry, String> c2 = new TableColumn<>(bundle.getString("table.size"));
+        c2.setCellValueFactory(r -> new SimpleStringProperty(human(r.getValue().size())));
+        c2.setMaxWidth(120);
+
+        tv.getColumns().add(c1);
+        tv.getColumns().add(c2);
+        return tv;
+    }
+
+    private TreeTableView<SpaceReport.DirNode> buildDirTree() {
+        dirTree.setShowRoot(false);
+        dirTree.setColumnResizePolicy(TreeTableView.CONSTRAINED_RESIZE_POLICY);
+
+        TreeTableColumn<SpaceReport.DirNode, String> c1 = new TreeTableColumn<>(bundle.getString("table.path"));
+        c1.setCellValueFactory(r -> {
+            Path p = r.getValue().getValue().path();
+            boolean top = r.getValue().getParent() == dirTree.getRoot();
+            return new SimpleStringProperty(top || p.getFileName() == null ? p.toString() : p.getFileName().toString());
+        });
+
+        TreeTableColumn<SpaceReport.DirNode, String> c2 = new TreeTableColumn<>(bundle.getString("table.size"));
+        c2.setCellValueFactory(r -> new SimpleStringProperty(human(r.getValue().getValue().bytes())));
+        c2.setMaxWidth(120);
+
+        dirTree.getColumns().add(c1);
+        dirTree.getColumns().add(c2);
+        return dirTree;
+    }
+
+    private void showReport(SpaceReport report, Map<Category, Long> sizes) {
+        largest.setAll(report.largestFiles());
+
+        /* каталоги менші за 0,1 % просканованого не розгортаються окремими рядками */
+        long total = sizes.values().stream().mapToLong(Long::longValue).sum();
+        TreeItem<SpaceReport.DirNode> root = new TreeItem<>();
+        for (SpaceReport.DirNode n : report.tree(total / 1000))
+            root.getChildren().add(treeItem(n));
+        dirTree.setRoot(root);
+    }
+
+    private static TreeItem<SpaceReport.DirNode> treeItem(SpaceReport.DirNode n) {
+        TreeItem<SpaceReport.DirNode> item = new TreeItem<>(n);
+        for (SpaceReport.DirNode c : n.children())
+            item.getChildren().add(treeItem(c));
+        return item;
+    }
+
     private void runAnalysis() {
         bar.progressProperty().unbind();
         bar.setProgress(0);
+        status.textProperty().unbind();
         status.setText(bundle.getString("status.please_wait"));
 
         if (currentTask != null && currentTask.isRunning())
             currentTask.cancel();
+        stopWatcher();
 
-        Set<FileCategory> selectedCats = catChecks.entrySet().stream()
+        Set<Category> selectedCats = catChecks.entrySet().stream()
                 .filter(e -> e.getValue().isSelected())
                 .map(Map.Entry::getKey)
                 .collect(Collectors.toSet());
@@ -196,6 +290,8 @@ public class DiskAnalysisTab extends Tab {
 
         catChecks.values().forEach(cb -> cb.setDisable(true));
         driveChecks.values().forEach(cb -> cb.setDisable(true));
+        scanModeCombo.setDisable(true);
+        incrementalCheckBox.setDisable(true);
 
         long minSizeBytes = 0;
         long maxSizeBytes = Long.MAX_VALUE;
@@ -231,43 +327,84 @@ public class DiskAnalysisTab extends Tab {
         long fMaxSize = maxSizeBytes;
         long fMinMod = minModified;
         long fMaxMod = maxModified;
+        DiskAnalyzer.ScanMode mode = scanModeCombo.getValue();
+        boolean incremental = incrementalCheckBox.isSelected();
+        SpaceReport report = new SpaceReport(TOP_FILES, TREE_DEPTH, TREE_NODES);
+        largest.clear();
+        dirTree.setRoot(null);
 
         currentTask = new Task<>() {
             @Override
-            protected Map<FileCategory, Long> call() {
-                return DiskAnalyzer.analyze(
-                        roots,
-                        fMinSize,
-                        fMaxSize,
-                        fMinMod,
-                        fMaxMod,
-                        this::updateProgress);
+            protected Map<Category, Long> call() {
+                try (ProgressMeter meter = new ProgressMeter(p -> {
+                    updateProgress(p.fraction(), 1);
+                    updateMessage(p.format(bundle.getString("status.progress")));
+                })) {
+                    return DiskAnalyzer.analyze(
+                            roots,
+                            profile,
+                            fMinSize,
+                            fMaxSize,
+                            fMinMod,
+                            fMaxMod,
+                            mode,
+                            incremental,
+                            report,
+                            meter);
+                }
             }
         };
 
         currentTask.setOnSucceeded(ev -> {
+            status.textProperty().unbind();
             @SuppressWarnings("unchecked")
-            Map<FileCategory, Long> result = ((Task<Map<FileCategory, Long>>) ev.getSource()).getValue();
+            Map<Category, Long> result = ((Task<Map<Category, Long>>) ev.getSource()).getValue();
             populate(selectedCats, result);
+            showReport(report, result);
             reEnable();
             status.setText(bundle.getString("status.done"));
+            if (liveCheckBox.isSelected())
+                startWatcher(roots, fMinSize, fMaxSize, fMinMod, fMaxMod, selectedCats, result);
         });
 
         currentTask.setOnFailed(ev -> {
+            status.textProperty().unbind();
             status.setText(bundle.getString("status.error") + ev.getSource().getException().getMessage());
             ev.getSource().getException().printStackTrace();
             reEnable();
         });
 
         bar.progressProperty().bind(currentTask.progressProperty());
+        status.textProperty().bind(currentTask.messageProperty());
         AppContext.EXECUTOR.submit(currentTask);
     }
 
+    private void startWatcher(List<Path> roots, long minSize, long maxSize, long minMod, long maxMod,
+            Set<Category> selectedCats, Map<Category, Long> result) {
+        try {
+            watcher = DiskAnalyzer.watch(roots, profile, minSize, maxSize, minMod, maxMod, result,
+                    MAX_WATCH_KEYS, WATCH_INTERVAL_MS,
+                    totals -> Platform.runLater(() -> populate(selectedCats, totals)));
+            status.setText(bundle.getString("status.live"));
+        } catch (IOException e) {
+            status.setText(bundle.getString("status.error") + e.getMessage());
+        }
+    }
+
+    private void stopWatcher() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
     private void reEnable() {
         bar.progressProperty().unbind();
         bar.setProgress(0);
         catChecks.values().forEach(cb -> cb.setDisable(false));
         driveChecks.values().forEach(cb -> cb.setDisable(false));
+        scanModeCombo.setDisable(false);
+        incrementalCheckBox.setDisable(false);
     }
 
     private void showError(String title, String header, String content) {
@@ -278,23 +415,38 @@ public class DiskAnalysisTab extends Tab {
         a.showAndWait();
     }
 
-    private void populate(Set<FileCategory> selected, Map<FileCategory, Long> sizes) {
+    /* оновлює існуючі сектори на місці; діаграма перебудовується лише при зміні набору секторів */
+    private void populate(Set<Category> selected, Map<Category, Long> sizes) {
         rows.clear();
-        ObservableList<PieChart.Data> slice = FXCollections.observableArrayList();
-
-        selected.forEach(cat -> {
-            long sz = sizes.getOrDefault(cat, 0L);
-            rows.add(new Row(cat.label, human(sz)));
-            if (sz > 0)
-                slice.add(new PieChart.Data(cat.label + " (" + human(sz) + ")", sz));
-        });
-        pie.setData(slice);
+        boolean reshaped = false;
+
+        for (Category cat : profile.categories()) {
+            long sz = selected.contains(cat) ? sizes.getOrDefault(cat, 0L) : 0;
+            if (selected.contains(cat))
+                rows.add(new Row(cat.label(), human(sz)));
+
+            PieChart.Data d = slices.get(cat);
+            if (sz > 0 && d == null) {
+                d = new PieChart.Data(cat.label() + " (" + human(sz) + ")", sz);
+                slices.put(cat, d);
+                pie.getData().add(d);
+                reshaped = true;
+            } else if (sz > 0) {
+                d.setName(cat.label() + " (" + human(sz) + ")");
+                d.setPieValue(sz);
+            } else if (d != null) {
+                slices.remove(cat);
+                pie.getData().remove(d);
+                reshaped = true;
+            }
+        }
 
-        Platform.runLater(() -> {
-            pie.setMinSize(400, 400);
-            pie.applyCss();
-            pie.layout();
-        });
+        if (reshaped)
+            Platform.runLater(() -> {
+                pie.setMinSize(400, 400);
+                pie.applyCss();
+                pie.layout();
+            });
     }
 
     private record Row(SimpleStringProperty cat, SimpleStringProperty size) {
@@ -1,6 +1,7 @@
 package disk.utility.ui.tabs;
 
 import disk.utility.AppContext;
+import disk.utility.ui.tabs.DriveInfo.Mount;
 import javafx.application.Platform;
 import javafx.collections.*;
 import javafx.geometry.Insets;
@@ -8,18 +9,33 @@ import javafx.geometry.Pos;
 import javafx.scene.chart.PieChart;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
-import java.util.List;
-import java.util.ResourceBundle;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Огляд томів. Томи опитуються у фоні лише поки вкладка відкрита; у FX-потік іде тільки
+ * змінений знімок: нові й відмонтовані томи додаються/прибираються, в інших оновлюються
+ * значення наявних діаграм і рядків таблиці.
+ */
 public class DiskOverviewTab extends Tab {
 
+    private static final long REFRESH_SECONDS = 5;
+
     private final ObservableList<DriveInfo> tableData = FXCollections.observableArrayList();
 
     private final TableView<DriveInfo> table;
     private final TilePane chartsPane = new TilePane(10, 10);
     private final ResourceBundle bundle ;
 
+    /* показане зараз, за точкою монтування; лише FX-потік */
+    private final Map<String, DriveInfo> drives = new HashMap<>();
+    private final Map<String, PieChart> charts = new HashMap<>();
+    private ScheduledFuture<?> poll;
+
+    /* останній знімок, відправлений у FX-потік; лише під synchronized collect */
+    private List<Mount> last = List.of();
+
     public DiskOverviewTab(ResourceBundle bundle) {
         super(bundle.getString("tab.overview"));
         this.bundle = bundle;
@@ -32,7 +48,7 @@ public class DiskOverviewTab extends Tab {
         scroll.setFitToWidth(true);
 
         Button refreshBtn = new Button(bundle.getString("button.refresh"));
-        refreshBtn.setOnAction(e -> refreshOnce());
+        refreshBtn.setOnAction(e -> AppContext.EXECUTOR.execute(() -> collect(true)));
 
         HBox topBox = new HBox(10,
                 new Label(bundle.getString("label.drives")),
@@ -46,8 +62,15 @@ public class DiskOverviewTab extends Tab {
         table.setPrefHeight(100);
         setContent(content);
 
-        refreshOnce();
-        startAutoRefresh();
+        /* прихована вкладка не опитує томи */
+        selectedProperty().addListener((obs, o, on) -> {
+            if (on)
+                startAutoRefresh();
+            else
+                stopAutoRefresh();
+        });
+        if (isSelected())
+            startAutoRefresh();
     }
 
     private TableView<DriveInfo> buildTable() {
@@ -67,29 +90,45 @@ public class DiskOverviewTab extends Tab {
         return tv;
     }
 
-    private void refreshOnce() {
-        List<DriveInfo> drives = DriveInfo.fetch();
-        tableData.setAll(drives);
+    /* фоновий потік: опитати томи; force — показати навіть незмінений знімок */
+    private synchronized void collect(boolean force) {
+        List<Mount> now = DriveInfo.fetchMounts();
+        if (!force && now.equals(last))
+            return;
+        last = now;
+        Platform.runLater(() -> apply(now));
+    }
 
-        chartsPane.getChildren().clear();
-        for (DriveInfo d : drives) {
-            chartsPane.getChildren().add(buildChartFor(d));
+    private void apply(List<Mount> mounts) {
+        boolean mountsChanged = false;
+        Set<String> gone = new HashSet<>(drives.keySet());
+        for (Mount m : mounts) {
+            gone.remove(m.path());
+            DriveInfo d = drives.get(m.path());
+            if (d == null) {
+                d = new DriveInfo(m.path(), m.total(), m.free());
+                drives.put(m.path(), d);
+                charts.put(m.path(), buildChartFor(d));
+                mountsChanged = true;
+            } else if (d.update(m.total(), m.free())) {
+                updateChart(charts.get(m.path()), d);
+            }
+        }
+        for (String path : gone) {
+            drives.remove(path);
+            charts.remove(path);
+        }
+        if (mountsChanged || !gone.isEmpty()) {
+            tableData.setAll(mounts.stream().map(m -> drives.get(m.path())).toList());
+            chartsPane.getChildren().setAll(mounts.stream().map(m -> charts.get(m.path())).toList());
         }
     }
 
     private PieChart buildChartFor(DriveInfo d) {
-        long used = d.usedBytes();
-        long free = d.freeBytes();
-
-        PieChart.Data usedSlice = new PieChart.Data(
-                bundle.getString("label.used") + "(" + human(used) + ")", used);
-        PieChart.Data freeSlice = new PieChart.Data(
-                bundle.getString("label.free") + "(" + human(free) + ")", free);
+        PieChart pie = new PieChart(FXCollections.observableArrayList(
+                new PieChart.Data("", 0), new PieChart.Data("", 0)));
+        updateChart(pie, d);
 
-        PieChart pie = new PieChart(
-                FXCollections.observableArrayList(usedSlice, freeSlice));
-
-        pie.setTitle(d.letterProperty().get() + " (" + d.totalProperty().get() + ")");
         pie.setLabelsVisible(true);
         pie.setClockwise(true);
         pie.setLegendVisible(false);
@@ -98,6 +137,21 @@ public class DiskOverviewTab extends Tab {
         return pie;
     }
 
+    /* ті самі вузли PieChart.Data — діаграма анімує зміну замість перебудови */
+    private void updateChart(PieChart pie, DriveInfo d) {
+        long used = d.usedBytes();
+        long free = d.freeBytes();
+
+        PieChart.Data usedSlice = pie.getData().get(0);
+        usedSlice.setName(bundle.getString("label.used") + "(" + human(used) + ")");
+        usedSlice.setPieValue(used);
+        PieChart.Data freeSlice = pie.getData().get(1);
+        freeSlice.setName(bundle.getString("label.free") + "(" + human(free) + ")");
+        freeSlice.setPieValue(free);
+
+        pie.setTitle(d.letterProperty().get() + " (" + d.totalProperty().get() + ")");
+    }
+
     private static String human(long b) {
         String[] u = { "B", "KB", "MB", "GB", "TB" };
         int i = 0;
@@ -109,9 +163,18 @@ public class DiskOverviewTab extends Tab {
         return String.format("%.1f %s", v, u[i]);
     }
 
+    /* fixed delay: повільне опитування (мережевий том) не накопичує черги запусків */
     private void startAutoRefresh() {
-        AppContext.EXECUTOR.scheduleAtFixedRate(
-                () -> Platform.runLater(this::refreshOnce),
-                5, 5, TimeUnit.SECONDS);
+        if (poll == null)
+            poll = AppContext.EXECUTOR.scheduleWithFixedDelay(
+                    () -> collect(false),
+                    0, REFRESH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void stopAutoRefresh() {
+        if (poll != null) {
+            poll.cancel(false);
+            poll = null;
+        }
     }
-}
\ No newline at end of file
+}
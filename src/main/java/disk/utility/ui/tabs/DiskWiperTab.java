@@ -1,26 +1,61 @@
 package disk.utility.ui.tabs;
 
 import disk.utility.AppContext;
+import disk.utility.MainApp;
+import disk.utility.ProgressMeter;
+import disk.utility.duplicate.StorageKind;
 import disk.utility.ui.components.DirectoryPicker;
+import disk.utility.wipe.FreeSpaceWiper;
+import disk.utility.wipe.WipePattern;
+import disk.utility.wipe.WipeScheduler;
 import javafx.concurrent.Task;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
-import java.io.IOException;
-import java.io.RandomAccessFile;
+import javafx.util.StringConverter;
+
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.Random;
 import java.util.ResourceBundle;
 
 public class DiskWiperTab extends Tab {
+
+    private final ResourceBundle bundle;
+    private final Spinner<Integer> passes = new Spinner<>(1, 7, 3);
+    private final ComboBox<WipePattern> pattern = new ComboBox<>();
+    private final CheckBox verify;
+    private final Button wipe;
+    private final Button wipeFree;
+    private final Button cancel;
+    private final ProgressBar bar = new ProgressBar();
+    private final Label status = new Label();
+
     public DiskWiperTab(ResourceBundle bundle) {
         super(bundle.getString("tab.wiper"));
+        this.bundle = bundle;
 
         DirectoryPicker picker = new DirectoryPicker(bundle.getString("tab.wiperText"));
-        Spinner<Integer> passes = new Spinner<>(1, 7, 3);
-        Button wipe = new Button(bundle.getString("button.wipe"));
-        ProgressBar bar = new ProgressBar();
+        pattern.getItems().addAll(WipePattern.values());
+        pattern.setValue(WipePattern.RANDOM);
+        pattern.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(WipePattern p) {
+                return p == null ? "" : bundle.getString("wipe." + p.name().toLowerCase());
+            }
+
+            @Override
+            public WipePattern fromString(String s) {
+                return null;
+            }
+        });
+        /* кількість проходів DoD задана стандартом */
+        passes.disableProperty().bind(pattern.valueProperty().isEqualTo(WipePattern.DOD_3)
+                .or(pattern.valueProperty().isEqualTo(WipePattern.DOD_7)));
+
+        verify = new CheckBox(bundle.getString("label.verify_wipe"));
+
+        wipe = new Button(bundle.getString("button.wipe"));
+        cancel = new Button(bundle.getString("button.cancel"));
+        cancel.setVisible(false);
         bar.setPrefWidth(300);
         bar.setVisible(false);
 
@@ -30,71 +65,203 @@ public class DiskWiperTab extends Tab {
                 new Alert(Alert.AlertType.ERROR, bundle.getString("alert.select_path")).show();
                 return;
             }
-            Path path = Paths.get(pathStr);
-            int passCount = passes.getValue();
-
-            bar.setProgress(0);
-            bar.setVisible(true);
-
-            Task<Void> task = new Task<>() {
-                @Override
-                protected Void call() throws Exception {
-                    if (Files.isDirectory(path)) {
-                        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
-                            @Override
-                            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                                wipeFile(file, passCount);
-                                updateProgress(1, 1);
-                                return FileVisitResult.CONTINUE;
-                            }
-                            @Override
-                            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                                Files.delete(dir);
-                                return FileVisitResult.CONTINUE;
-                            }
-                        });
-                    } else {
-                        wipeFile(path, passCount);
-                    }
-                    return null;
+            wipePath(Paths.get(pathStr));
+        });
+
+        /* ---------- вільне місце тому ---------- */
+        ComboBox<DriveInfo> volume = new ComboBox<>();
+        volume.getItems().setAll(DriveInfo.fetch());
+        if (!volume.getItems().isEmpty())
+            volume.setValue(volume.getItems().get(0));
+        volume.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(DriveInfo d) {
+                return d == null ? "" : d.letterProperty().get() + "  (" + d.freeProperty().get() + ")";
+            }
+
+            @Override
+            public DriveInfo fromString(String s) {
+                return null;
+            }
+        });
+        Spinner<Integer> margin = new Spinner<>(0, 1 << 20, (int) (FreeSpaceWiper.DEFAULT_MARGIN >> 20), 256);
+        margin.setEditable(true);
+        wipeFree = new Button(bundle.getString("button.wipe_free"));
+        wipeFree.setOnAction(e -> {
+            if (volume.getValue() != null)
+                wipeFreeSpace(Paths.get(volume.getValue().letterProperty().get()), (long) margin.getValue() << 20);
+        });
+        TitledPane freePane = new TitledPane(bundle.getString("label.free_space"), new VBox(8,
+                new HBox(8, new Label(bundle.getString("label.volume")), volume),
+                new HBox(8, new Label(bundle.getString("label.margin_mb")), margin),
+                wipeFree));
+        freePane.setCollapsible(false);
+
+        setContent(new VBox(10, picker,
+                new HBox(8, new Label(bundle.getString("label.pattern")), pattern),
+                new HBox(8, new Label(bundle.getString("label.passes")), passes), verify, wipe,
+                freePane, cancel, bar, status));
+    }
+
+    private void wipePath(Path path) {
+        int passCount = passes.getValue();
+        WipePattern p = pattern.getValue();
+        boolean check = verify.isSelected();
+        StorageKind kind = StorageKind.parse(
+                MainApp.PREFS.get(MainApp.STORAGE_KIND_PREF, StorageKind.AUTO.name()));
+
+        /* скасування перериває потік задачі: файли в роботі дозатираються, нові не починаються */
+        WipeTask<WipeScheduler.Result> task = new WipeTask<>() {
+            @Override
+            protected WipeScheduler.Result work() throws Exception {
+                try (ProgressMeter meter = new ProgressMeter(s -> {
+                    updateProgress(s.fraction(), 1);
+                    updateMessage(s.format(bundle.getString("status.progress")));
+                })) {
+                    WipeScheduler.Result r = WipeScheduler.wipe(path, p, passCount, check, kind, meter);
+                    updateMessage((r.cancelled() ? bundle.getString("status.cancelled") + "  " : "")
+                            + bundle.getString("status.wiped") + r.files()
+                            + (r.failed() > 0 ? "  " + bundle.getString("status.failed") + r.failed() : "")
+                            + (r.cachedVerifies() > 0
+                                    ? "  " + bundle.getString("status.verify_cached") + r.cachedVerifies() : ""));
+                    return r;
                 }
-            };
-            bar.progressProperty().bind(task.progressProperty());
-            task.setOnSucceeded(ev -> {
-                bar.setVisible(false);
+            }
+        };
+        task.setOnSucceeded(ev -> {
+            finish();
+            if (task.getValue().cancelled())
+                return;
+            if (task.getValue().failed() == 0 && task.getValue().cachedVerifies() == 0)
                 new Alert(Alert.AlertType.INFORMATION, bundle.getString("alert.wipe_completed")).show();
-            });
-            task.setOnFailed(ev -> {
-                bar.setVisible(false);
-                new Alert(Alert.AlertType.ERROR, bundle.getString("alert.wipe_failed") + task.getException().getMessage()).show();
-            });
-            AppContext.EXECUTOR.submit(task);
+            else
+                new Alert(Alert.AlertType.WARNING, status.getText()).show();
         });
+        run(task);
+    }
 
-        setContent(new VBox(10, picker,
-                new HBox(8, new Label(bundle.getString("label.passes")), passes), wipe, bar));
+    /* заповнює вільне місце тому тимчасовими файлами; показує швидкість і скільки лишилось */
+    private void wipeFreeSpace(Path root, long marginBytes) {
+        int passCount = passes.getValue();
+        WipePattern p = pattern.getValue();
+        boolean check = verify.isSelected();
+        WipeTask<FreeSpaceWiper.Result> task = new WipeTask<>() {
+            private volatile String chunk = "";
+
+            @Override
+            protected FreeSpaceWiper.Result work() throws Exception {
+                try (ProgressMeter meter = new ProgressMeter(s -> {
+                    updateProgress(s.fraction(), 1);
+                    updateMessage(s.format(bundle.getString("status.progress")) + "  "
+                            + bundle.getString("status.remaining") + human(s.total() - s.done()) + chunk);
+                })) {
+                    FreeSpaceWiper.Result r = FreeSpaceWiper.wipe(root, p, passCount, check, marginBytes, meter,
+                            c -> chunk = "  " + bundle.getString("status.write_size") + human(c));
+                    updateMessage((r.cancelled() ? bundle.getString("status.cancelled") + "  " : "")
+                            + bundle.getString("status.free_wiped") + human(r.written())
+                            + (r.cachedVerify() ? "  " + bundle.getString("status.verify_cached_volume") : "")
+                            + (r.leftBytes() > 0 ? "  " + bundle.getString("status.free_left") + human(r.leftBytes())
+                                    + " (" + root.resolve(FreeSpaceWiper.TEMP_DIR) + ")" : ""));
+                    return r;
+                }
+            }
+        };
+        task.setOnSucceeded(ev -> {
+            finish();
+            if (task.getValue().cancelled() && task.getValue().leftBytes() == 0)
+                return;
+            if (task.getValue().cachedVerify() || task.getValue().leftBytes() > 0)
+                new Alert(Alert.AlertType.WARNING, status.getText()).show();
+            else
+                new Alert(Alert.AlertType.INFORMATION, bundle.getString("alert.wipe_completed")).show();
+        });
+        run(task);
     }
 
-    private void wipeFile(Path file, int passes) throws IOException {
-        if (!Files.isRegularFile(file)) return;
-
-        long size = Files.size(file);
-        byte[] buffer = new byte[65536];
-        Random random = new Random();
-
-        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
-            for (int p = 0; p < passes; p++) {
-                raf.seek(0);
-                long remaining = size;
-                while (remaining > 0) {
-                    int chunk = (int) Math.min(buffer.length, remaining);
-                    random.nextBytes(buffer);
-                    raf.write(buffer, 0, chunk);
-                    remaining -= chunk;
+    /*
+     * Скасування — не Task.cancel(): той одразу переводить задачу в CANCELLED, і кнопки ввімкнулися б,
+     * поки файли в роботі ще дозатираються. Тут лише переривається потік, а інтерфейс розблоковується,
+     * коли work() справді повернувся (з Result.cancelled()).
+     */
+    private abstract static class WipeTask<T> extends Task<T> {
+        private Thread worker;
+        private boolean stopped;
+
+        protected abstract T work() throws Exception;
+
+        @Override
+        protected final T call() throws Exception {
+            synchronized (this) {
+                worker = Thread.currentThread();
+                if (stopped)
+                    worker.interrupt(); // скасовано ще в черзі
+            }
+            try {
+                return work();
+            } finally {
+                synchronized (this) {
+                    worker = null;
+                    Thread.interrupted(); // переривання не має дістатися наступній задачі пулу
                 }
-                raf.getChannel().force(true);
             }
         }
-        Files.delete(file);
+
+        synchronized void stop() {
+            stopped = true;
+            if (worker != null)
+                worker.interrupt();
+        }
+
+        synchronized boolean stopped() {
+            return stopped;
+        }
+    }
+
+    private void run(WipeTask<?> task) {
+        bar.setProgress(0);
+        bar.setVisible(true);
+        wipe.setDisable(true);
+        wipeFree.setDisable(true);
+        cancel.setDisable(false);
+        cancel.setVisible(true);
+        bar.progressProperty().bind(task.progressProperty());
+        status.textProperty().bind(task.messageProperty());
+        cancel.setOnAction(ev -> {
+            cancel.setDisable(true);
+            task.stop();
+        });
+        task.setOnFailed(ev -> {
+            finish();
+            /* введення-виведення, перерване скасуванням, — не помилка */
+            if (task.stopped()) {
+                status.setText(bundle.getString("status.cancelled"));
+                return;
+            }
+            StringBuilder msg = new StringBuilder(bundle.getString("alert.wipe_failed") + task.getException().getMessage());
+            for (Throwable s : task.getException().getSuppressed())
+                msg.append('\n').append(s.getMessage());
+            new Alert(Alert.AlertType.ERROR, msg.toString()).show();
+        });
+        AppContext.EXECUTOR.submit(task);
+    }
+
+    private void finish() {
+        bar.progressProperty().unbind();
+        bar.setVisible(false);
+        wipe.setDisable(false);
+        wipeFree.setDisable(false);
+        cancel.setVisible(false);
+        status.textProperty().unbind(); // лишається останнє повідомлення задачі
+    }
+
+    private static String human(long b) {
+        String[] u = { "B", "KB", "MB", "GB", "TB" };
+        int i = 0;
+        double v = b;
+        while (v >= 1024 && i < u.length - 1) {
+            v /= 1024;
+            i++;
+        }
+        return String.format("%.1f %s", v, u[i]);
     }
-}
\ No newline at end of file
+}
@@ -2,10 +2,15 @@
 package disk.utility.ui.tabs;
 
 import javafx.beans.property.SimpleStringProperty;
+import oshi.SystemInfo;
+import oshi.software.os.FileSystem;
+import oshi.software.os.OSFileStore;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class DriveInfo {
 
@@ -13,15 +18,23 @@ public class DriveInfo {
     private final SimpleStringProperty total = new SimpleStringProperty();
     private final SimpleStringProperty free = new SimpleStringProperty();
 
-    private final long totalBytes;
-    private final long freeBytes;
+    private long totalBytes;
+    private long freeBytes;
 
     public DriveInfo(String letter, long totalBytes, long freeBytes) {
         this.letter.set(letter);
+        update(totalBytes, freeBytes);
+    }
+
+    /** Оновити розміри на місці (FX-потік для показаних дисків); false — нічого не змінилося */
+    public boolean update(long totalBytes, long freeBytes) {
+        if (total.get() != null && this.totalBytes == totalBytes && this.freeBytes == freeBytes)
+            return false;
         this.totalBytes = totalBytes;
         this.freeBytes = freeBytes;
-        this.total.set(human(totalBytes));
-        this.free.set(human(freeBytes));
+        total.set(human(totalBytes));
+        free.set(human(freeBytes));
+        return true;
     }
 
     // -------- гетери для JavaFX TableView --------
@@ -74,4 +87,47 @@ public class DriveInfo {
         }
         return list;
     }
+
+    /** Знімок тому без JavaFX-властивостей — збирається поза FX-потоком і порівнюється з попереднім */
+    public record Mount(String path, long total, long free) {
+    }
+
+    /**
+     * Усі змонтовані томи через OSHI (на Linux/macOS — точки монтування, а не лише «/»).
+     * Без OSHI для платформи — ті самі корені, що й fetch().
+     */
+    public static List<Mount> fetchMounts() {
+        FileSystem fs = Oshi.FS;
+        if (fs != null) {
+            try {
+                List<Mount> list = new ArrayList<>();
+                Set<String> seen = new HashSet<>();
+                for (OSFileStore s : fs.getFileStores()) {
+                    long t = s.getTotalSpace();
+                    if (t > 0 && seen.add(s.getMount()))
+                        list.add(new Mount(s.getMount(), t, s.getFreeSpace()));
+                }
+                return list;
+            } catch (RuntimeException | LinkageError e) {
+                // падаємо на File.listRoots
+            }
+        }
+        List<Mount> list = new ArrayList<>();
+        for (DriveInfo d : fetch())
+            list.add(new Mount(d.letterProperty().get(), d.totalBytes, d.freeBytes));
+        return list;
+    }
+
+    /* SystemInfo вантажить нативні бібліотеки — лише при першому зверненні */
+    private static final class Oshi {
+        static final FileSystem FS = create();
+
+        private static FileSystem create() {
+            try {
+                return new SystemInfo().getOperatingSystem().getFileSystem();
+            } catch (RuntimeException | LinkageError e) {
+                return null;
+            }
+        }
+    }
 }
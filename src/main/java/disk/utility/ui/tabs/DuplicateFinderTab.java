@@ -1,22 +1,37 @@
 package disk.utility.ui.tabs;
 
 import disk.utility.AppContext;
+import disk.utility.MainApp;
+import disk.utility.ProgressMeter;
+import disk.utility.duplicate.ContentHasher;
+import disk.utility.duplicate.DuplicateCleaner;
 import disk.utility.duplicate.DuplicateFinderService;
-import javafx.beans.property.*;
+import disk.utility.duplicate.HashCache;
+import disk.utility.duplicate.StorageKind;
+import disk.utility.ui.components.DuplicateResultsView;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.BooleanBinding;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.DirectoryChooser;
+import javafx.util.StringConverter;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
-import java.time.format.DateTimeFormatter;
+import java.text.MessageFormat;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class DuplicateFinderTab extends Tab {
 
@@ -24,6 +39,10 @@ public class DuplicateFinderTab extends Tab {
     private final CheckBox cbSize;
     private final CheckBox cbDate;
     private final CheckBox cbHash;
+    private final ComboBox<ContentHasher> hasherCombo = new ComboBox<>();
+    private final CheckBox cbVerify;
+    private final CheckBox cbSimilar;
+    private final Spinner<Integer> imageDistance = new Spinner<>(0, 32, DEFAULT_IMAGE_DISTANCE);
 
     private final CheckBox igZero;
     private final Spinner<Double> minSize;
@@ -38,13 +57,26 @@ public class DuplicateFinderTab extends Tab {
 
     private final Label status = new Label();
 
-    private final VBox resultsBox = new VBox(8);
-    private final ScrollPane scroll = new ScrollPane(resultsBox);
+    private final DuplicateResultsView results;
+    private final Label selectionLabel = new Label();
 
     private final Button deleteBtn = new Button();
-    private final BooleanProperty somethingSelected = new SimpleBooleanProperty(false);
-
-    private Task<?> current;
+    private final ComboBox<DuplicateCleaner.Mode> modeCombo = new ComboBox<>();
+    private final Button restoreBtn = new Button();
+    private Path lastJournal;
+    /* прибирання йде паралельно з пошуком — свої індикатори, статус пошуку не чіпає */
+    private final ProgressBar cleanBar = new ProgressBar(0);
+    private final Label cleanStatus = new Label();
+
+    private Task<?> current;  // пошук
+    private Task<?> cleanup;  // прибирання або відкат
+    private int generation;   // номер набору результатів: прибирання старого набору не чіпає новий
+    private final Queue<DuplicateFinderService.Group> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean appendQueued = new AtomicBoolean();
+
+    private static final long APPEND_PERIOD_MS = 250;
+    /* різниця dHash у бітах, до якої зображення вважаються схожими */
+    private static final int DEFAULT_IMAGE_DISTANCE = 10;
     private VBox leftPane;
     private final ResourceBundle bundle;
 
@@ -56,6 +88,8 @@ public class DuplicateFinderTab extends Tab {
         cbSize = new CheckBox(bundle.getString("label.size"));
         cbDate = new CheckBox(bundle.getString("label.date"));
         cbHash = new CheckBox(bundle.getString("label.content"));
+        cbVerify = new CheckBox(bundle.getString("label.verify_bytes"));
+        cbSimilar = new CheckBox(bundle.getString("label.similar_images"));
 
         igZero = new CheckBox(bundle.getString("label.ignore_zero"));
         minSize = new Spinner<>();
@@ -68,7 +102,29 @@ public class DuplicateFinderTab extends Tab {
         cbHash.setSelected(true);
         igZero.setSelected(true);
 
-        FlowPane critPane = new FlowPane(10, 5, cbName, cbSize, cbDate, cbHash);
+        hasherCombo.getItems().addAll(ContentHasher.XXH64, ContentHasher.SHA256);
+        hasherCombo.setValue(ContentHasher.XXH64);
+        /* схожі зображення — окремий режим: точні критерії не застосовуються */
+        BooleanBinding exact = cbSimilar.selectedProperty().not();
+        cbName.disableProperty().bind(cbSimilar.selectedProperty());
+        cbSize.disableProperty().bind(cbSimilar.selectedProperty());
+        cbDate.disableProperty().bind(cbSimilar.selectedProperty());
+        cbHash.disableProperty().bind(cbSimilar.selectedProperty());
+        hasherCombo.disableProperty().bind(cbHash.selectedProperty().and(exact).not());
+        /* 64-бітний XXH64 не доводить збігу вмісту — для нього побайтова перевірка обов'язкова */
+        BooleanBinding weakHash = Bindings.createBooleanBinding(
+                () -> !hasherCombo.getValue().collisionResistant(), hasherCombo.valueProperty());
+        cbVerify.disableProperty().bind(cbHash.selectedProperty().and(exact).not().or(weakHash));
+        cbVerify.setSelected(true);
+        hasherCombo.valueProperty().addListener((obs, o, h) -> {
+            if (!h.collisionResistant())
+                cbVerify.setSelected(true);
+        });
+        imageDistance.disableProperty().bind(exact);
+        imageDistance.setPrefWidth(70);
+
+        FlowPane critPane = new FlowPane(10, 5, cbName, cbSize, cbDate, cbHash, hasherCombo, cbVerify,
+                cbSimilar, new HBox(4, new Label(bundle.getString("label.image_distance")), imageDistance));
         VBox ignPane = new VBox(6, igZero,
                 new HBox(4, new Label(bundle.getString("label.min_mb")), minSize),
                 new HBox(4, new Label(bundle.getString("label.max_mb")), maxSize));
@@ -90,9 +146,23 @@ public class DuplicateFinderTab extends Tab {
         spinner.setVisible(false);
         spinner.setPrefSize(22, 22);
         deleteBtn.setText(bundle.getString("button.delete_selected"));
-        deleteBtn.setVisible(false);
-        deleteBtn.setDisable(true);
         deleteBtn.setOnAction(e -> deleteSelected());
+        modeCombo.getItems().addAll(DuplicateCleaner.Mode.values());
+        modeCombo.setValue(DuplicateCleaner.Mode.DELETE);
+        modeCombo.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(DuplicateCleaner.Mode m) {
+                return m == null ? "" : bundle.getString("mode." + m.name().toLowerCase());
+            }
+
+            @Override
+            public DuplicateCleaner.Mode fromString(String s) {
+                return null;
+            }
+        });
+        restoreBtn.setText(bundle.getString("button.restore"));
+        restoreBtn.setOnAction(e -> restoreLast());
+        restoreBtn.setVisible(false);
 
         leftPane = new VBox(10,
                 titled(bundle.getString("label.criteria"), critPane),
@@ -103,16 +173,27 @@ public class DuplicateFinderTab extends Tab {
         leftPane.setPadding(new Insets(10));
         VBox.setVgrow(dirSplit, Priority.ALWAYS);
 
-        scroll.setFitToWidth(true);
-        resultsBox.setPadding(new Insets(10));
+        results = new DuplicateResultsView(bundle.getString("table.path"), bundle.getString("table.size"),
+                bundle.getString("label.files"), bundle.getString("label.hardlinks"));
+        BooleanBinding somethingSelected = results.selectedCountProperty().greaterThan(0);
+        deleteBtn.disableProperty().bind(somethingSelected.not());
+        selectionLabel.textProperty().bind(Bindings.createStringBinding(
+                () -> MessageFormat.format(bundle.getString("status.selected"),
+                        results.selectedCountProperty().get(), human(results.selectedBytesProperty().get())),
+                results.selectedCountProperty(), results.selectedBytesProperty()));
 
         BorderPane root = new BorderPane();
         root.setLeft(leftPane);
-        root.setCenter(scroll);
-        root.setBottom(new StackPane(deleteBtn) {
+        root.setCenter(results);
+        cleanBar.setPrefWidth(160);
+        cleanBar.setVisible(false);
+        root.setBottom(new HBox(12, modeCombo, deleteBtn, selectionLabel, restoreBtn, cleanBar, cleanStatus) {
             {
                 setPadding(new Insets(8));
+                setAlignment(Pos.CENTER);
+                modeCombo.visibleProperty().bind(somethingSelected);
                 deleteBtn.visibleProperty().bind(somethingSelected);
+                selectionLabel.visibleProperty().bind(somethingSelected);
             }
         });
         deleteBtn.maxWidthProperty().bind(root.widthProperty().subtract(30));
@@ -138,104 +219,228 @@ public class DuplicateFinderTab extends Tab {
                 minSize.getValue().longValue() * 1024L * 1024,
                 maxSize.getValue().longValue() * 1024L * 1024,
                 new ArrayList<>(includeList.getItems()),
-                new ArrayList<>(excludeList.getItems()));
-
-        current = new Task<>() {
+                new ArrayList<>(excludeList.getItems()),
+                readers(includeList.getItems()),
+                hasherCombo.getValue(),
+                cbVerify.isSelected(),
+                (long) MainApp.PREFS.getInt(MainApp.DUP_MEMORY_PREF, MainApp.DEFAULT_DUP_MEMORY_MB) << 20);
+
+        boolean similar = cbSimilar.isSelected();
+        int distance = imageDistance.getValue();
+        /* посиланнями замінюються лише файли з однаковим вмістом: не для схожих зображень і не без порівняння вмісту */
+        modeCombo.getItems().setAll(DuplicateCleaner.Mode.values());
+        if (similar || !opt.matchContent())
+            modeCombo.getItems().remove(DuplicateCleaner.Mode.HARDLINK);
+        modeCombo.setValue(DuplicateCleaner.Mode.DELETE);
+
+        AtomicInteger found = new AtomicInteger();
+        AtomicInteger linked = new AtomicInteger();
+        current = new Task<Integer>() {
             @Override
-            protected List<List<Path>> call() {
-                return DuplicateFinderService.findDuplicates(opt,
-                        (done, total) -> updateProgress((double) done, (double) total));
+            protected Integer call() {
+                try (ProgressMeter meter = new ProgressMeter(p -> {
+                    updateProgress(p.fraction(), 1);
+                    updateMessage(bundle.getString("status.groups") + found.get() + linkedStats(linked.get())
+                            + "  " + p.format(bundle.getString("status.progress")));
+                })) {
+                    Consumer<DuplicateFinderService.Group> sink = g -> {
+                        incoming.add(g);
+                        (g.linked() ? linked : found).incrementAndGet();
+                    };
+                    if (similar)
+                        DuplicateFinderService.findSimilarImages(opt, distance, meter, sink);
+                    else
+                        DuplicateFinderService.findDuplicates(opt, meter, sink);
+                }
+                return found.get();
             }
         };
 
+        /* групи додаються пакетами, не частіше ніж раз на APPEND_PERIOD_MS */
+        ScheduledFuture<?> appender = AppContext.EXECUTOR.scheduleAtFixedRate(() -> {
+            if (!incoming.isEmpty() && appendQueued.compareAndSet(false, true))
+                Platform.runLater(this::appendIncoming);
+        }, APPEND_PERIOD_MS, APPEND_PERIOD_MS, TimeUnit.MILLISECONDS);
+
         current.setOnSucceeded(e -> {
-            List<List<Path>> result = ((Task<List<List<Path>>>) e.getSource()).getValue();
-            if (result == null || result.isEmpty())
-                status.setText(bundle.getString("status.no_duplicates"));
-            else {
-                buildResults(result);
-                status.setText(bundle.getString("status.groups") + result.size());
-            }
+            appender.cancel(false);
+            appendIncoming();
+            status.textProperty().unbind();
+            if (found.get() == 0)
+                status.setText(bundle.getString("status.no_duplicates") + linkedStats(linked.get()) + cacheStats());
+            else
+                status.setText(bundle.getString("status.groups") + found.get() + linkedStats(linked.get())
+                        + cacheStats());
             finish();
         });
 
         current.setOnFailed(e -> {
+            appender.cancel(false);
+            appendIncoming();
+            status.textProperty().unbind();
             status.setText(bundle.getString("status.error") + current.getException().getMessage());
             finish();
         });
 
         bar.progressProperty().bind(current.progressProperty());
-        perc.textProperty().bind(current.progressProperty().multiply(100).asString("%.0f %%"));
+        Task<?> task = current;
+        perc.textProperty().bind(Bindings.createStringBinding(() -> {
+            double p = task.getProgress();
+            return p < 0 ? "" : String.format("%.0f %%", p * 100); // обхід ще рахує файли
+        }, task.progressProperty()));
+        status.textProperty().bind(current.messageProperty());
 
         AppContext.EXECUTOR.submit(current);
     }
 
-    private void buildResults(List<List<Path>> groups) {
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        int gid = 1;
-        for (List<Path> g : groups) {
-            long total = g.stream().mapToLong(this::sizeSafe).sum();
-            VBox filesBox = new VBox(4);
-            filesBox.setPadding(new Insets(4));
-
-            for (Path p : g) {
-                long sz = sizeSafe(p);
-                CheckBox cb = new CheckBox(p.toString() + "  (" + human(sz) + ")");
-                cb.setUserData(p);
-                cb.selectedProperty().addListener((obs, o, n) -> updateSelectionState());
-                filesBox.getChildren().add(cb);
-            }
-            TitledPane pane = new TitledPane("#" + gid + " - " + g.size() + " files (" + human(total) + ")", filesBox);
-            pane.setExpanded(true);
-            pane.setPadding(new Insets(2));
-            resultsBox.getChildren().add(pane);
-            gid++;
-        }
+    /* кількість паралельних читачів залежно від типу накопичувача (Settings) */
+    private static int readers(List<Path> roots) {
+        StorageKind kind = StorageKind.parse(
+                MainApp.PREFS.get(MainApp.STORAGE_KIND_PREF, StorageKind.AUTO.name()));
+        boolean hdd = kind == StorageKind.HDD
+                || (kind == StorageKind.AUTO && StorageKind.anyRotational(roots));
+        return hdd
+                ? MainApp.PREFS.getInt(MainApp.READERS_HDD_PREF, MainApp.DEFAULT_READERS_HDD)
+                : MainApp.PREFS.getInt(MainApp.READERS_SSD_PREF, MainApp.DEFAULT_READERS_SSD);
+    }
+
+    /* набори жорстких посилань — окремо від справжніх дублікатів */
+    private String linkedStats(int n) {
+        return n == 0 ? "" : "  " + bundle.getString("status.linked") + n;
     }
 
+    private String cacheStats() {
+        HashCache c = DuplicateFinderService.cache();
+        if (c.hits() + c.misses() == 0)
+            return "";
+        return "  " + bundle.getString("status.cache") + c.hits() + " / " + c.misses();
+    }
+
+    /* забирає групи, що надійшли з пошуку; порядок за місцем, яке можна звільнити, тримає view */
+    private void appendIncoming() {
+        appendQueued.set(false);
+        List<DuplicateFinderService.Group> batch = new ArrayList<>();
+        for (DuplicateFinderService.Group g; (g = incoming.poll()) != null;)
+            batch.add(g);
+        if (!batch.isEmpty())
+            results.add(batch);
+    }
+
+    /*
+     * прибирання у фоні: DuplicateCleaner групує файли за каталогами і веде журнал.
+     * Можна й під час пошуку — знайдені групи вже підтверджені.
+     */
     private void deleteSelected() {
-        List<CheckBox> sel = resultsBox.getChildren().stream()
-                .filter(n -> n instanceof TitledPane)
-                .map(TitledPane.class::cast)
-                .flatMap(tp -> ((VBox) tp.getContent()).getChildren().stream())
-                .filter(n -> n instanceof CheckBox && ((CheckBox) n).isSelected())
-                .map(CheckBox.class::cast)
-                .collect(Collectors.toList());
-        if (sel.isEmpty())
+        int[] sel = results.selectedIds();
+        if (sel.length == 0 || cleanup != null)
+            return;
+        DuplicateCleaner.Mode mode = modeCombo.getValue();
+
+        List<DuplicateCleaner.Target> targets = new ArrayList<>(sel.length);
+        List<Integer> ids = new ArrayList<>(sel.length);
+        long bytes = 0;
+        for (int id : sel) {
+            Path file = results.path(id);
+            Path keep = results.keeper(id);
+            if (mode == DuplicateCleaner.Mode.HARDLINK && (file.equals(keep) || results.hash(id) == null))
+                continue; // на цю копію вказуватимуть посилання; без хешу вмісту — не посилання
+            targets.add(new DuplicateCleaner.Target(file, results.sizeOf(id), results.hash(id), keep));
+            ids.add(id);
+            bytes += results.freed(id);
+        }
+        if (targets.isEmpty())
             return;
 
-        String message = bundle.getString("alert.delete_confirm") + sel.size()
-                + bundle.getString("alert.delete_confirm_files");
+        String message = MessageFormat.format(bundle.getString("alert.cleanup_confirm"),
+                modeCombo.getConverter().toString(mode), targets.size(), human(bytes));
         if (new Alert(Alert.AlertType.CONFIRMATION, message, ButtonType.YES, ButtonType.NO)
                 .showAndWait().orElse(ButtonType.NO) != ButtonType.YES)
             return;
 
-        int ok = 0, fail = 0;
-        for (CheckBox cb : sel) {
-            Path p = (Path) cb.getUserData();
-            try {
-                if (Files.deleteIfExists(p))
-                    ok++;
-                else
-                    fail++;
-            } catch (IOException ex) {
-                fail++;
+        Path quarantine = Path.of(MainApp.PREFS.get(MainApp.QUARANTINE_PREF,
+                DuplicateCleaner.defaultQuarantine().toString()));
+        Task<DuplicateCleaner.Result> task = new Task<>() {
+            @Override
+            protected DuplicateCleaner.Result call() throws IOException {
+                try (ProgressMeter meter = new ProgressMeter(p -> {
+                    updateProgress(p.fraction(), 1);
+                    updateMessage(bundle.getString("status.cleaning") + "  "
+                            + p.format(bundle.getString("status.progress")));
+                })) {
+                    return DuplicateCleaner.clean(targets, mode, quarantine, DuplicateCleaner.defaultJournalDir(),
+                            DuplicateCleaner.DEFAULT_PARALLELISM, meter);
+                }
             }
-        }
-        status.setText(bundle.getString("status.deleted") + ok
-                + (fail > 0 ? "  " + bundle.getString("status.failed") + fail : ""));
-        refreshAfterDeletion();
-        updateSelectionState();
+        };
+        int gen = generation;
+        task.setOnSucceeded(e -> {
+            DuplicateCleaner.Result r = task.getValue();
+            if (gen == generation)
+                results.remove(r.done().stream().map(ids::get).toArray());
+            lastJournal = mode == DuplicateCleaner.Mode.DELETE ? null : r.journal();
+            restoreBtn.setVisible(lastJournal != null);
+            finishCleanup();
+            cleanStatus.setText(bundle.getString("status.deleted") + r.done().cardinality()
+                    + (r.failed() > 0 ? "  " + bundle.getString("status.failed") + r.failed() : "")
+                    + "  " + bundle.getString("status.journal") + r.journal());
+        });
+        task.setOnFailed(e -> {
+            finishCleanup();
+            cleanStatus.setText(bundle.getString("status.error") + task.getException().getMessage());
+        });
+        runCleanup(task);
     }
 
-    private void refreshAfterDeletion() {
-        resultsBox.getChildren().removeIf(tp -> {
-            if (!(tp instanceof TitledPane))
-                return false;
-            VBox box = (VBox) ((TitledPane) tp).getContent();
-            box.getChildren().removeIf(n -> n instanceof CheckBox && ((CheckBox) n).isSelected());
-            return box.getChildren().isEmpty();
+    /* відкочує останнє прибирання в карантин або жорсткими посиланнями */
+    private void restoreLast() {
+        if (lastJournal == null || cleanup != null)
+            return;
+        Path journal = lastJournal;
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() throws IOException {
+                try (ProgressMeter meter = new ProgressMeter(p -> {
+                    updateProgress(p.fraction(), 1);
+                    updateMessage(p.format(bundle.getString("status.progress")));
+                })) {
+                    return DuplicateCleaner.restore(journal, meter);
+                }
+            }
+        };
+        task.setOnSucceeded(e -> {
+            lastJournal = null;
+            restoreBtn.setVisible(false);
+            finishCleanup();
+            cleanStatus.setText(bundle.getString("status.restored") + task.getValue());
+        });
+        task.setOnFailed(e -> {
+            finishCleanup();
+            cleanStatus.setText(bundle.getString("status.error") + task.getException().getMessage());
         });
+        runCleanup(task);
+    }
+
+    /* пошук, якщо він іде, не зупиняється: прибирання має власні прогрес і статус */
+    private void runCleanup(Task<?> task) {
+        cleanup = task;
+        deleteBtn.disableProperty().unbind();
+        deleteBtn.setDisable(true);
+        restoreBtn.setDisable(true);
+        modeCombo.setDisable(true);
+        cleanBar.setVisible(true);
+        cleanBar.progressProperty().bind(task.progressProperty());
+        cleanStatus.textProperty().bind(task.messageProperty());
+        AppContext.EXECUTOR.submit(task);
+    }
+
+    private void finishCleanup() {
+        cleanBar.progressProperty().unbind();
+        cleanBar.setVisible(false);
+        cleanStatus.textProperty().unbind();
+        deleteBtn.disableProperty().bind(results.selectedCountProperty().greaterThan(0).not());
+        restoreBtn.setDisable(false);
+        modeCombo.setDisable(false);
+        cleanup = null;
     }
 
     private void finish() {
@@ -261,25 +466,10 @@ public class DuplicateFinderTab extends Tab {
         });
     }
 
-    private void updateSelectionState() {
-        boolean any = resultsBox.getChildren().stream()
-                .filter(tp -> tp instanceof TitledPane)
-                .map(TitledPane.class::cast)
-                .flatMap(tp -> {
-                    Node content = tp.getContent();
-                    if (content instanceof VBox) {
-                        return ((VBox) content).getChildrenUnmodifiable().stream();
-                    }
-                    return Stream.<Node>empty();
-                })
-                .anyMatch(n -> n instanceof CheckBox && ((CheckBox) n).isSelected());
-        somethingSelected.set(any);
-        deleteBtn.setDisable(!any);
-    }
-
     private void clearResults() {
-        resultsBox.getChildren().clear();
-        somethingSelected.set(false);
+        generation++;
+        incoming.clear();
+        results.clear();
     }
 
     private void pickDir(ListView<Path> list) {
@@ -288,14 +478,6 @@ public class DuplicateFinderTab extends Tab {
             list.getItems().add(dir.toPath());
     }
 
-    private long sizeSafe(Path p) {
-        try {
-            return Files.size(p);
-        } catch (IOException e) {
-            return 0;
-        }
-    }
-
     private static TitledPane titled(String t, Node n) {
         TitledPane p = new TitledPane(t, n);
         p.setCollapsible(false);
@@ -1,13 +1,23 @@
 package disk.utility.ui.tabs;
 
 import disk.utility.MainApp;
+import disk.utility.analysis.CategoryProfile;
+import disk.utility.duplicate.DuplicateCleaner;
+import disk.utility.duplicate.StorageKind;
 import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import java.text.MessageFormat;
 import java.util.ResourceBundle;
 import java.util.prefs.Preferences;
 
 public class SettingsTab extends Tab {
     private final ComboBox<String> languageCombo;
+    private final ComboBox<StorageKind> storageCombo;
+    private final Spinner<Integer> ssdReaders;
+    private final Spinner<Integer> hddReaders;
+    private final Spinner<Integer> dupMemory;
+    private final TextField quarantine;
     private final Button applyButton;
     private final Preferences prefs = MainApp.PREFS;
     private final ResourceBundle bundle;
@@ -20,10 +30,33 @@ public class SettingsTab extends Tab {
         String currentLang = MainApp.CURRENT_LOCALE.getLanguage();
         languageCombo.setValue(currentLang.equals("uk") ? "Українська" : "English");
 
+        storageCombo = new ComboBox<>();
+        storageCombo.getItems().addAll(StorageKind.values());
+        storageCombo.setValue(StorageKind.parse(prefs.get(MainApp.STORAGE_KIND_PREF, StorageKind.AUTO.name())));
+        ssdReaders = new Spinner<>(1, 64, prefs.getInt(MainApp.READERS_SSD_PREF, MainApp.DEFAULT_READERS_SSD));
+        hddReaders = new Spinner<>(1, 16, prefs.getInt(MainApp.READERS_HDD_PREF, MainApp.DEFAULT_READERS_HDD));
+        dupMemory = new Spinner<>(64, 65536, prefs.getInt(MainApp.DUP_MEMORY_PREF, MainApp.DEFAULT_DUP_MEMORY_MB), 64);
+        dupMemory.setEditable(true);
+        quarantine = new TextField(prefs.get(MainApp.QUARANTINE_PREF, DuplicateCleaner.defaultQuarantine().toString()));
+        quarantine.setPrefColumnCount(30);
+
         applyButton = new Button(bundle.getString("button.apply"));
         applyButton.setOnAction(e -> applySettings());
 
-        VBox content = new VBox(10, new Label(bundle.getString("label.language")), languageCombo, applyButton);
+        VBox content = new VBox(10, new Label(bundle.getString("label.language")), languageCombo,
+                new Label(bundle.getString("label.storage_kind")), storageCombo,
+                new HBox(8, new Label(bundle.getString("label.readers_ssd")), ssdReaders),
+                new HBox(8, new Label(bundle.getString("label.readers_hdd")), hddReaders),
+                new HBox(8, new Label(bundle.getString("label.dup_memory")), dupMemory),
+                new HBox(8, new Label(bundle.getString("label.quarantine")), quarantine),
+                applyButton);
+        /* зіпсований categories.json не зупиняє програму, але користувач має про це знати */
+        String categoriesError = CategoryProfile.loadError();
+        if (categoriesError != null) {
+            Label error = new Label(MessageFormat.format(bundle.getString("label.categories_error"), categoriesError));
+            error.setWrapText(true);
+            content.getChildren().add(error);
+        }
         setContent(content);
     }
 
@@ -31,6 +64,22 @@ public class SettingsTab extends Tab {
         String selectedLang = languageCombo.getValue();
         String langCode = selectedLang.equals("Українська") ? "uk" : "en";
         prefs.put(MainApp.LANG_PREF, langCode);
+        prefs.put(MainApp.STORAGE_KIND_PREF, storageCombo.getValue().name());
+        prefs.putInt(MainApp.READERS_SSD_PREF, ssdReaders.getValue());
+        prefs.putInt(MainApp.READERS_HDD_PREF, hddReaders.getValue());
+        /*
+         * набране в редакторі потрапляє у value лише після Enter — інакше зберігся б старий обсяг.
+         * Поза межами — обрізається до них; не число чи порожньо — лишається попереднє значення.
+         */
+        try {
+            if (!dupMemory.getEditor().getText().isBlank())
+                dupMemory.commitValue();
+        } catch (NumberFormatException ignored) {
+        }
+        dupMemory.cancelEdit(); // редактор показує значення, яке збережено
+        prefs.putInt(MainApp.DUP_MEMORY_PREF, dupMemory.getValue());
+        if (!quarantine.getText().isBlank())
+            prefs.put(MainApp.QUARANTINE_PREF, quarantine.getText().trim());
         new Alert(Alert.AlertType.INFORMATION, bundle.getString("restart_message")).show();
     }
 }
\ No newline at end of file
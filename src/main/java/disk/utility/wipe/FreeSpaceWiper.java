@@ -0,0 +1,211 @@
+package disk.utility.wipe;
+
+import disk.utility.ProgressMeter;
+import disk.utility.wipe.WipePattern.Pass;
+
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Затирання вільного місця тому: тимчасові файли в прихованому каталозі на цьому томі
+ * заповнюють вільне місце (кожен — усіма проходами шаблону і з force()), а потім видаляються.
+ * Лишається запас margin байтів, щоб система і програми не впали на повному диску.
+ * Розмір запису підбирає короткий замір швидкості перед початком.
+ * З перевіркою кожен заповнений файл звіряється у фоні, поки пишеться наступний.
+ */
+public final class FreeSpaceWiper {
+
+    public static final long DEFAULT_MARGIN = 256L << 20;
+    /** Каталог тимчасових файлів у корені тому */
+    public static final String TEMP_DIR = ".du-free-space";
+
+    /* файл не більший за 1 ГБ — проходить і на FAT32, і не тримає багато місця при скасуванні */
+    private static final long FILE_BYTES = 1L << 30;
+    private static final int[] PROBE_CHUNKS = { 1 << 20, 4 << 20, 16 << 20 };
+    private static final long PROBE_BYTES = 32L << 20;
+
+    /**
+     * written — байтів записано за всі проходи; chunk — розмір запису, обраний заміром;
+     * cachedVerify — том не дає прямого читання, звірка йшла через кеш ОС;
+     * leftBytes — тимчасові файли, які не вдалося видалити (лишилися в TEMP_DIR)
+     */
+    public record Result(long written, int files, int chunk, boolean cancelled, boolean cachedVerify,
+            long leftBytes) {
+    }
+
+    private FreeSpaceWiper() {
+    }
+
+    /**
+     * volume — корінь тому або будь-який каталог на ньому з правом запису.
+     * onChunk отримує обраний розмір запису до початку заповнення (для показу в UI).
+     * Якщо перевірка знайшла розбіжність — IOException після прибирання тимчасових файлів
+     * (невидалені файли — у suppressed).
+     */
+    public static Result wipe(Path volume, WipePattern pattern, int passes, boolean verify, long margin,
+            ProgressMeter progress, IntConsumer onChunk) throws IOException {
+        FileStore store = Files.getFileStore(volume);
+        Path dir = Files.createDirectories(volume.resolve(TEMP_DIR));
+        List<Pass> plan = pattern.passes(passes);
+        long written = 0;
+        int files = 0;
+        int chunk = WipeEngine.CHUNK;
+        boolean cancelled = false;
+        ExecutorService verifier = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "DU-verify-" + UUID.randomUUID());
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<Boolean>> checks = new ArrayList<>();
+        boolean cachedVerify = false;
+        Exception failure = null;
+        long left;
+        try {
+            chunk = probe(dir, store, margin, progress);
+            onChunk.accept(chunk);
+            long free = store.getUsableSpace() - margin;
+            progress.addTotal(Math.max(0, free) * (plan.size() + (verify ? 1 : 0)));
+
+            while (true) {
+                if (Thread.currentThread().isInterrupted())
+                    throw new CancellationException();
+                long size = Math.min(FILE_BYTES, store.getUsableSpace() - margin);
+                size -= size % chunk; // цілі буфери — менше часткових записів
+                if (size <= 0)
+                    break;
+                Path f = dir.resolve("fill-" + files + ".tmp");
+                files++;
+                try (FileChannel ch = FileChannel.open(f, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    WipeEngine.Written w = WipeEngine.write(ch, f, size, plan, chunk, progress);
+                    written += size * plan.size();
+                    if (verify)
+                        checks.add(verifier.submit(() -> WipeEngine.verify(w, progress)));
+                } catch (ClosedByInterruptException e) {
+                    throw new CancellationException();
+                } catch (IOException e) {
+                    /* місце скінчилося раніше, ніж показував том (інші програми теж пишуть) — це кінець */
+                    if (store.getUsableSpace() >= (long) chunk * 2)
+                        throw e;
+                    break;
+                }
+            }
+            cachedVerify = !await(checks);
+        } catch (CancellationException | ClosedByInterruptException e) {
+            cancelled = true;
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            /* звірка, що ще читає файл, тримає його відкритим — на Windows такий файл не видалиться */
+            stop(verifier);
+            left = clean(dir);
+            if (failure != null && left > 0)
+                failure.addSuppressed(new IOException("Temporary files left: " + left + " bytes in " + dir));
+        }
+        return new Result(written, files, chunk, cancelled, cachedVerify, left);
+    }
+
+    /* перериває звірки і чекає, доки вони справді зупиняться; переривання самого очікування не кидає */
+    private static void stop(ExecutorService verifier) {
+        verifier.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (verifier.awaitTermination(1, TimeUnit.SECONDS))
+                    break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /*
+     * файли видаляються лише після звірки; переривання — скасування, розбіжність — IOException.
+     * false — хоча б одна звірка читала через кеш ОС
+     */
+    private static boolean await(List<Future<Boolean>> checks) throws IOException {
+        boolean direct = true;
+        try {
+            for (Future<Boolean> c : checks)
+                direct &= c.get();
+            return direct;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io)
+                throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /* кожен кандидат пише PROBE_BYTES випадкових даних із force(); береться найшвидший. Замір — теж у прогресі */
+    private static int probe(Path dir, FileStore store, long margin, ProgressMeter progress) throws IOException {
+        if (store.getUsableSpace() - margin < PROBE_BYTES * 2)
+            return WipeEngine.CHUNK;
+        progress.addTotal(PROBE_BYTES * PROBE_CHUNKS.length);
+        int best = WipeEngine.CHUNK;
+        double bestRate = 0;
+        Path f = dir.resolve("probe.tmp");
+        try {
+            for (int c : PROBE_CHUNKS) {
+                long t = System.nanoTime();
+                try (FileChannel ch = FileChannel.open(f, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    WipeEngine.overwrite(ch, PROBE_BYTES, Pass.RANDOM, System.nanoTime(), c, progress);
+                    ch.force(true);
+                }
+                double rate = PROBE_BYTES / Math.max(1e-9, (System.nanoTime() - t) / 1e9);
+                if (rate > bestRate) {
+                    bestRate = rate;
+                    best = c;
+                }
+            }
+        } finally {
+            Files.deleteIfExists(f);
+        }
+        return best;
+    }
+
+    /*
+     * Видаляє все, що вдасться: файл, що не видалився, не зупиняє решту — інакше на томі лишилося б
+     * заповнене вільне місце. Повертає обсяг файлів, що лишилися. Каталог плаский (fill-N, probe).
+     */
+    private static long clean(Path dir) {
+        long left = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path f : files) {
+                try {
+                    Files.deleteIfExists(f);
+                } catch (IOException e) {
+                    left += sizeOf(f);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // каталог не читається — видалити його нижче теж не вийде
+        }
+        try {
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            left = Math.max(left, 1); // щось лишилося, навіть якщо розмір невідомий
+        }
+        return left;
+    }
+
+    private static long sizeOf(Path f) {
+        try {
+            return Files.size(f);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
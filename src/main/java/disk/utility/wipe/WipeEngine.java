@@ -0,0 +1,305 @@
+package disk.utility.wipe;
+
+import com.sun.nio.file.ExtendedOpenOption;
+import disk.utility.ProgressMeter;
+import disk.utility.wipe.WipePattern.Pass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Затирання файлів поза UI. Запис — через FileChannel великими direct-буферами, тож дані
+ * не копіюються з купи. Випадкові проходи беруть потік SplittableRandom (seed з SecureRandom),
+ * яким окремий потік заповнює наступний буфер, поки поточний пишеться на диск, — генерація
+ * не стоїть на шляху запису. Фіксовані шаблони пишуться з одного заповненого буфера.
+ * Після кожного проходу — force(), після останнього файл перейменовується і видаляється.
+ * Перевірка читає файл назад повз кеш ОС (O_DIRECT / FILE_FLAG_NO_BUFFERING) і порівнює з тим самим
+ * потоком, відтвореним із seed, — записані дані в пам'яті не зберігаються.
+ */
+public final class WipeEngine {
+
+    static final int CHUNK = 4 << 20;
+
+    /* фонове заповнення буферів; кешований пул — очікування заповнення не може його вичерпати */
+    private static final ExecutorService FILLERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "DU-fill-" + UUID.randomUUID());
+        t.setDaemon(true);
+        return t;
+    });
+    private static final SecureRandom SEEDS = new SecureRandom();
+    private static final Map<Long, ByteBuffer> FIXED = new ConcurrentHashMap<>(); // (байт << 32 | розмір)
+    private static final ThreadLocal<ByteBuffer> READ = new ThreadLocal<>();
+
+    /** Останній прохід, записаний у файл: з нього перевірка відтворює очікуваний вміст */
+    record Written(Path file, long size, Pass last, long seed, int chunk) {
+    }
+
+    private WipeEngine() {
+    }
+
+    /* ---------------- API ---------------- */
+
+    /**
+     * Перезаписує вміст файлу всіма проходами шаблону, за потреби перевіряє останній прохід
+     * і видаляє файл. Не звичайний файл — лише видаляється. Якщо перевірка не пройшла, файл лишається.
+     * Повертає false, якщо перевірку довелося читати через кеш ОС (пряме читання не підтримується).
+     */
+    public static boolean wipeFile(Path file, WipePattern pattern, int passes, boolean verify,
+            ProgressMeter progress) throws IOException {
+        Written w = write(file, pattern, passes, CHUNK, progress);
+        boolean direct = w == null || !verify || verify(w, progress);
+        delete(file);
+        return direct;
+    }
+
+    /** Обсяг роботи для прогресу: усі проходи плюс читання при перевірці */
+    public static long plannedBytes(long size, WipePattern pattern, int passes, boolean verify) {
+        return size * (pattern.passes(passes).size() + (verify ? 1 : 0));
+    }
+
+    /** Перший етап wipeFile: усі проходи з force(); null — не звичайний файл, перевіряти нічого */
+    static Written write(Path file, WipePattern pattern, int passes, int chunk, ProgressMeter progress)
+            throws IOException {
+        if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS))
+            return null; // посилання не ведуть до даних, які треба затерти
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            Written w = write(ch, file, ch.size(), pattern.passes(passes), chunk, progress);
+            progress.add(1, 0);
+            return w;
+        }
+    }
+
+    static Written write(FileChannel ch, Path file, long size, List<Pass> plan, int chunk, ProgressMeter progress)
+            throws IOException {
+        Pass last = null;
+        long seed = 0;
+        for (Pass p : plan) {
+            seed = SEEDS.nextLong();
+            overwrite(ch, size, p, seed, chunk, progress);
+            ch.force(true);
+            last = p;
+        }
+        return new Written(file, size, last, seed, chunk);
+    }
+
+    /* ---------------- passes ---------------- */
+
+    /** Пише size байтів проходу p з позиції 0 буферами по chunk байтів (кратно 8) */
+    static void overwrite(FileChannel ch, long size, Pass p, long seed, int chunk, ProgressMeter progress)
+            throws IOException {
+        try (Source src = source(p, seed, chunk, size)) {
+            for (long pos = 0; pos < size;) {
+                if (Thread.currentThread().isInterrupted())
+                    throw new CancellationException();
+                ByteBuffer b = src.next();
+                b.limit((int) Math.min(b.capacity(), size - pos));
+                int n = b.remaining();
+                while (b.hasRemaining())
+                    pos += ch.write(b, pos);
+                progress.add(0, n);
+            }
+        }
+    }
+
+    /**
+     * Читає файл послідовно великими блоками і порівнює з відтвореним останнім проходом.
+     * Читання йде з пристрою (DIRECT, буфер і зсуви вирівняні на блок тому), інакше воно прийшло б
+     * з кешу ОС і нічого не довело б. Якщо файлова система або ОС прямого читання не дають,
+     * файл читається звичайно і повертається false — викликач має про це повідомити.
+     */
+    static boolean verify(Written w, ProgressMeter progress) throws IOException {
+        int block = blockSize(w.file);
+        /* зсуви читань кратні chunk; пряме читання можливе, лише якщо вони вирівняні на блок */
+        FileChannel ch = block > 0 && (w.size <= w.chunk || w.chunk % block == 0) ? openDirect(w.file) : null;
+        boolean direct = ch != null;
+        if (ch == null) {
+            block = 1;
+            ch = FileChannel.open(w.file, StandardOpenOption.READ);
+        }
+        int span = (w.chunk + block - 1) / block * block; // читання округлюється до цілих блоків
+        ByteBuffer got = readBuffer(span, block);
+        try (FileChannel in = ch; Source expected = source(w.last, w.seed, w.chunk, w.size)) {
+            if (in.size() != w.size)
+                throw new IOException("Verification failed: " + w.file + " changed size");
+            for (long pos = 0; pos < w.size;) {
+                ByteBuffer exp = expected.next();
+                int n = (int) Math.min(exp.capacity(), w.size - pos);
+                exp.limit(n);
+                got.clear().limit((n + block - 1) / block * block);
+                while (got.position() < n)
+                    if (in.read(got, pos + got.position()) <= 0)
+                        throw new IOException("Verification failed: " + w.file + " is shorter than written");
+                got.flip().limit(n);
+                int at = got.mismatch(exp);
+                if (at >= 0)
+                    throw new IOException("Verification failed: " + w.file + " differs at byte " + (pos + at));
+                pos += n;
+                progress.add(0, n);
+            }
+        }
+        return direct;
+    }
+
+    private static int blockSize(Path file) {
+        try {
+            long b = Files.getFileStore(file).getBlockSize();
+            return b > 0 && b <= CHUNK ? (int) b : 0;
+        } catch (IOException | UnsupportedOperationException e) {
+            return 0;
+        }
+    }
+
+    /* null — пряме читання не підтримується (macOS, tmpfs, мережеві томи) */
+    private static FileChannel openDirect(Path file) {
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ, ExtendedOpenOption.DIRECT);
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /* буфер потоку, вирівняний на block; виділяється заново лише для більшого span або іншого вирівнювання */
+    private static ByteBuffer readBuffer(int span, int block) {
+        ByteBuffer b = READ.get();
+        if (b == null || b.capacity() < span || b.alignmentOffset(0, block) != 0) {
+            b = ByteBuffer.allocateDirect(span + block).alignedSlice(block);
+            READ.set(b);
+        }
+        return b;
+    }
+
+    /* ім'я теж затирається: перед видаленням файл перейменовується на випадкове */
+    static void delete(Path file) throws IOException {
+        if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Path renamed = file.resolveSibling(Long.toHexString(SEEDS.nextLong() & Long.MAX_VALUE) + ".du");
+        try {
+            Files.move(file, renamed);
+        } catch (IOException e) {
+            renamed = file;
+        }
+        Files.delete(renamed);
+    }
+
+    /* ---------------- sources ---------------- */
+
+    /** Джерело буферів одного проходу; повернений буфер дійсний до наступного next() */
+    private interface Source extends AutoCloseable {
+        ByteBuffer next();
+
+        @Override
+        void close();
+    }
+
+    /* той самий (p, seed, chunk, size) дає той самий потік — на цьому тримається перевірка */
+    private static Source source(Pass p, long seed, int chunk, long size) {
+        if (!p.random())
+            return new FixedSource(p.fill(), chunk);
+        /* малому файлу — малий буфер: не генеруємо мегабайти, з яких запишеться кілобайт */
+        int fit = (int) Math.min(chunk, Math.max(Long.BYTES, (size + Long.BYTES - 1) & -Long.BYTES));
+        return new RandomSource(seed, fit, size);
+    }
+
+    private static final class FixedSource implements Source {
+        private final ByteBuffer buf;
+
+        FixedSource(int fill, int chunk) {
+            /* буфер лише читається — спільний для всіх потоків, кожен бере власний duplicate() */
+            buf = FIXED.computeIfAbsent((long) fill << 32 | chunk, k -> {
+                ByteBuffer b = ByteBuffer.allocateDirect(chunk);
+                while (b.hasRemaining())
+                    b.put((byte) fill);
+                return b.clear();
+            }).duplicate();
+        }
+
+        @Override
+        public ByteBuffer next() {
+            return buf.clear();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /*
+     * Подвійна буферизація: поки викликач пише один буфер, FILLERS заповнює інший.
+     * Потік детермінований за seed: буфери заповнюються повністю і по черзі;
+     * наперед заповнюється лише те, що ще знадобиться для total байтів.
+     */
+    static final class RandomSource implements Source {
+        private final SplittableRandom rnd;
+        private final ByteBuffer[] bufs = new ByteBuffer[2];
+        private final long total;
+        private long produced;
+        private int current = -1;
+        private Future<?> pending;
+
+        RandomSource(long seed, int chunk, long total) {
+            this.rnd = new SplittableRandom(seed);
+            this.total = total;
+            bufs[0] = direct(chunk);
+            fill(bufs[0]);
+            produced = chunk;
+        }
+
+        private static ByteBuffer direct(int chunk) {
+            return ByteBuffer.allocateDirect(chunk).order(ByteOrder.nativeOrder());
+        }
+
+        private void fill(ByteBuffer b) {
+            for (int i = 0; i < b.capacity(); i += Long.BYTES)
+                b.putLong(i, rnd.nextLong());
+        }
+
+        private void prefetch(ByteBuffer b) {
+            if (produced < total) {
+                produced += b.capacity();
+                pending = FILLERS.submit(() -> fill(b));
+            } else {
+                pending = null;
+            }
+        }
+
+        @Override
+        public ByteBuffer next() {
+            if (current < 0) {
+                current = 0;
+                if (produced < total) {
+                    bufs[1] = direct(bufs[0].capacity());
+                    prefetch(bufs[1]);
+                }
+                return bufs[0].clear();
+            }
+            if (pending == null)
+                throw new IllegalStateException("Stream exhausted");
+            try {
+                pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            ByteBuffer written = bufs[current];
+            current ^= 1;
+            prefetch(written);
+            return bufs[current].clear();
+        }
+
+        @Override
+        public void close() {
+            if (pending != null)
+                pending.cancel(false);
+        }
+    }
+}
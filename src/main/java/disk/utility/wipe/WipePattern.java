@@ -0,0 +1,47 @@
+package disk.utility.wipe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Що записується під час затирання. Прохід — або фіксований байт, або псевдовипадковий потік.
+ * Для DoD кількість і порядок проходів задані стандартом, для решти — кількістю, яку обрав користувач.
+ */
+public enum WipePattern {
+    RANDOM,
+    ZEROS,
+    ONES,
+    /** DoD 5220.22-M: 0x00, 0xFF, випадкові дані */
+    DOD_3,
+    /** DoD 5220.22-M ECE: DoD, випадковий прохід, ще раз DoD */
+    DOD_7;
+
+    /** Один прохід: fill = -1 — випадкові дані, інакше байт заповнення */
+    public record Pass(int fill) {
+        public static final Pass RANDOM = new Pass(-1);
+        public static final Pass ZEROS = new Pass(0x00);
+        public static final Pass ONES = new Pass(0xFF);
+
+        public boolean random() {
+            return fill < 0;
+        }
+    }
+
+    private static final List<Pass> DOD = List.of(Pass.ZEROS, Pass.ONES, Pass.RANDOM);
+
+    public List<Pass> passes(int requested) {
+        return switch (this) {
+            case RANDOM -> Collections.nCopies(requested, Pass.RANDOM);
+            case ZEROS -> Collections.nCopies(requested, Pass.ZEROS);
+            case ONES -> Collections.nCopies(requested, Pass.ONES);
+            case DOD_3 -> DOD;
+            case DOD_7 -> {
+                List<Pass> l = new ArrayList<>(DOD);
+                l.add(Pass.RANDOM);
+                l.addAll(DOD);
+                yield List.copyOf(l);
+            }
+        };
+    }
+}
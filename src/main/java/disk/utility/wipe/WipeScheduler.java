@@ -0,0 +1,261 @@
+package disk.utility.wipe;
+
+import disk.utility.ProgressMeter;
+import disk.utility.duplicate.StorageKind;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Паралельне затирання дерева. Спершу один обхід збирає файли і рахує обсяг (для прогресу в байтах),
+ * далі файли затираються пулами — по одному на пристрій (FileStore) з обмеженням паралельності:
+ * SSD витримує кілька потоків запису, HDD — один. Каталог видаляється, щойно завершено всі його
+ * файли і підкаталоги. Скасування не перериває файли, що вже затираються: вони доводяться до кінця
+ * і видаляються, нові не починаються — напівзатертих файлів не лишається.
+ * З перевіркою файл після запису передається окремому пулу читання того ж пристрою: звірка одного
+ * файлу йде, поки пишеться наступний. Файл, що не пройшов звірку, не видаляється і йде у failed.
+ */
+public final class WipeScheduler {
+
+    public static final int SSD_PARALLELISM = 4;
+    public static final int HDD_PARALLELISM = 1;
+
+    /**
+     * files — затерті й видалені файли; cancelled — частину дерева не оброблено;
+     * cachedVerifies — файли, звірені через кеш ОС, бо пряме читання на їхньому томі не підтримується
+     */
+    public record Result(int files, int failed, boolean cancelled, int cachedVerifies) {
+    }
+
+    /* каталог видаляється, коли pending (файли + підкаталоги) доходить до нуля */
+    private static final class Dir {
+        final Path path;
+        final Dir parent;
+        final AtomicInteger pending = new AtomicInteger(1); // 1 — поки каталог обходиться
+
+        Dir(Path path, Dir parent) {
+            this.path = path;
+            this.parent = parent;
+        }
+    }
+
+    private record Job(Path file, long size, Dir dir, FileStore device) {
+    }
+
+    private final WipePattern pattern;
+    private final int passes;
+    private final boolean verify;
+    private final StorageKind kind;
+    private final ProgressMeter progress;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicInteger wiped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger cachedVerifies = new AtomicInteger();
+    private final Map<FileStore, ExecutorService> pools = new HashMap<>();
+    private final Map<FileStore, ExecutorService> verifiers = new ConcurrentHashMap<>();
+
+    private WipeScheduler(WipePattern pattern, int passes, boolean verify, StorageKind kind,
+            ProgressMeter progress) {
+        this.pattern = pattern;
+        this.passes = passes;
+        this.verify = verify;
+        this.kind = kind;
+        this.progress = progress;
+    }
+
+    /**
+     * Затирає файл або дерево. kind = AUTO — тип визначається для кожного пристрою окремо.
+     * verify — після запису файл читається назад і звіряється з останнім проходом.
+     * Переривання потоку — скасування: повертається, коли дозавершено файли в роботі.
+     */
+    public static Result wipe(Path path, WipePattern pattern, int passes, boolean verify, StorageKind kind,
+            ProgressMeter progress) throws IOException {
+        return new WipeScheduler(pattern, passes, verify, kind, progress).run(path);
+    }
+
+    private Result run(Path root) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        List<Dir> dirs = new ArrayList<>();
+        long[] total = { 0 };
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            private final Deque<Dir> stack = new ArrayDeque<>();
+            private final Deque<FileStore> stores = new ArrayDeque<>();
+            /* getFileStore читає таблицю монтувань — питаємо лише для нового пристрою з fileKey */
+            private final Map<String, FileStore> byDevice = new HashMap<>();
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes a) throws IOException {
+                Dir parent = stack.peek();
+                if (parent != null)
+                    parent.pending.incrementAndGet();
+                Dir dir = new Dir(d, parent);
+                stack.push(dir);
+                dirs.add(dir);
+                stores.push(store(d, a));
+                return FileVisitResult.CONTINUE;
+            }
+
+            private FileStore store(Path d, BasicFileAttributes a) throws IOException {
+                String key = Objects.toString(a.fileKey(), "");
+                int ino = key.indexOf(",ino=");
+                if (ino < 0)
+                    return Files.getFileStore(d);
+                FileStore s = byDevice.get(key.substring(0, ino));
+                if (s == null)
+                    byDevice.put(key.substring(0, ino), s = Files.getFileStore(d));
+                return s;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path f, BasicFileAttributes a) throws IOException {
+                Dir dir = stack.peek();
+                if (dir != null)
+                    dir.pending.incrementAndGet();
+                jobs.add(new Job(f, a.isRegularFile() ? a.size() : 0, dir,
+                        stores.isEmpty() ? Files.getFileStore(f) : stores.peek()));
+                total[0] += a.isRegularFile() ? a.size() : 0;
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path f, IOException exc) {
+                failed.incrementAndGet();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException exc) {
+                stack.pop();
+                stores.pop();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        progress.setTotal(WipeEngine.plannedBytes(total[0], pattern, passes, verify));
+
+        try {
+            for (Job j : jobs)
+                pool(j).execute(() -> run(j));
+            /* обхід завершено — знімаємо «обходиться»; порожні каталоги видаляються одразу */
+            for (Dir d : dirs)
+                release(d);
+            for (ExecutorService p : pools.values())
+                p.shutdown();
+            for (ExecutorService p : pools.values())
+                while (!p.awaitTermination(1, TimeUnit.SECONDS))
+                    ;
+            /* записи завершено — нових звірок не буде */
+            for (ExecutorService p : verifiers.values())
+                p.shutdown();
+            for (ExecutorService p : verifiers.values())
+                while (!p.awaitTermination(1, TimeUnit.SECONDS))
+                    ;
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            awaitRunning();
+            Thread.currentThread().interrupt();
+        }
+        return new Result(wiped.get(), failed.get(), cancelled.get(), cachedVerifies.get());
+    }
+
+    /*
+     * після скасування черги записів не запускаються, але файли в роботі треба дочекатися;
+     * звірки в черзі виконуються — їхні файли вже затерті і мають бути видалені
+     */
+    private void awaitRunning() {
+        awaitAll(pools.values());
+        awaitAll(verifiers.values());
+    }
+
+    private static void awaitAll(Collection<ExecutorService> services) {
+        for (ExecutorService p : services) {
+            p.shutdown();
+            boolean done = false;
+            while (!done) {
+                try {
+                    done = p.awaitTermination(1, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                    // скасування вже обробляється — дочікуємо
+                }
+            }
+        }
+    }
+
+    private ExecutorService pool(Job j) {
+        return pools.computeIfAbsent(j.device, store -> {
+            StorageKind k = kind != StorageKind.AUTO ? kind : StorageKind.detect(j.file);
+            return newPool(k == StorageKind.HDD ? HDD_PARALLELISM : SSD_PARALLELISM, "DU-wipe-");
+        });
+    }
+
+    /* стільки ж читачів, скільки писачів: звірка встигає за записом і не забирає весь пристрій */
+    private ExecutorService verifier(Job j) {
+        return verifiers.computeIfAbsent(j.device, store -> {
+            StorageKind k = kind != StorageKind.AUTO ? kind : StorageKind.detect(j.file);
+            return newPool(k == StorageKind.HDD ? HDD_PARALLELISM : SSD_PARALLELISM, "DU-verify-");
+        });
+    }
+
+    private static ExecutorService newPool(int n, String name) {
+        return Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, name + UUID.randomUUID());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private void run(Job j) {
+        if (cancelled.get())
+            return;
+        WipeEngine.Written w;
+        try {
+            w = WipeEngine.write(j.file, pattern, passes, WipeEngine.CHUNK, progress);
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            done(j);
+            return;
+        }
+        if (verify && w != null)
+            verifier(j).execute(() -> finish(j, w));
+        else
+            finish(j, null);
+    }
+
+    /* звірка (якщо є) і видалення; файл, що не пройшов звірку, лишається на місці */
+    private void finish(Job j, WipeEngine.Written w) {
+        try {
+            if (w != null && !WipeEngine.verify(w, progress))
+                cachedVerifies.incrementAndGet();
+            WipeEngine.delete(j.file);
+            wiped.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+        }
+        done(j);
+    }
+
+    private void done(Job j) {
+        if (j.dir != null)
+            release(j.dir);
+    }
+
+    /* остання робота в каталозі видаляє його і звільняє місце в батьківському */
+    private void release(Dir d) {
+        for (; d != null; d = d.parent) {
+            if (d.pending.decrementAndGet() != 0)
+                return;
+            try {
+                Files.delete(d.path);
+            } catch (DirectoryNotEmptyException e) {
+                return; // лишився файл, що не затерся (вже пораховано) або скасування — предки теж лишаються
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                return;
+            }
+        }
+    }
+}